@@ -0,0 +1,51 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Station timestamps in the user's short date and time format. The combined formatter is built
+// once per locale and 12/24h setting and shared by all widgets; DateFormat is not thread safe,
+// so formatting happens under its lock.
+class DateLabels {
+    private static final Map<String, DateFormat> formats = new HashMap<>();
+
+    private DateLabels() {
+    }
+
+    static String format(Context context, Observation observation) {
+        long millis = TimestampNormalizer.toEpochMillis(observation);
+        if (millis == TimestampNormalizer.UNKNOWN)
+            return TimestampNormalizer.rawText(observation);
+        DateFormat format = getFormat(context);
+        synchronized (format) {
+            return format.format(new Date(millis));
+        }
+    }
+
+    private static synchronized DateFormat getFormat(Context context) {
+        Locale locale = Locale.getDefault();
+        String key = locale + "|" + android.text.format.DateFormat.is24HourFormat(context);
+        DateFormat format = formats.get(key);
+        if (format == null) {
+            DateFormat date = android.text.format.DateFormat.getDateFormat(context);
+            DateFormat time = android.text.format.DateFormat.getTimeFormat(context);
+            if (date instanceof SimpleDateFormat && time instanceof SimpleDateFormat) {
+                String pattern = ((SimpleDateFormat) date).toPattern() + " " + ((SimpleDateFormat) time).toPattern().replace(".SSS", "");
+                format = new SimpleDateFormat(pattern, locale);
+            } else {
+                format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+            }
+            formats.put(key, format);
+        }
+        return format;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.FormatProbe;
+import com.zem.pwswatcher.network.Payload;
+
+import java.io.IOException;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+
+// Sources configured as a bare host are probed once; the endpoint that answered is stored
+// next to the widget settings and fetched directly until it keeps failing.
+class EndpointResolver {
+    private static final int MAX_FAILURES = 3;
+
+    private EndpointResolver() {
+    }
+
+    static Payload fetch(Context context, int widgetId, String url) throws IOException {
+        FetchCoordinator coordinator = StationNetwork.getCoordinator(context);
+        String endpoint = getKnownEndpoint(context, widgetId, url);
+        if (endpoint != null)
+            return coordinator.fetch(endpoint);
+        return new FormatProbe(coordinator).probe(url);
+    }
+
+    static Payload getCached(Context context, int widgetId, String url) {
+        String endpoint = getKnownEndpoint(context, widgetId, url);
+        return endpoint != null ? StationNetwork.getCoordinator(context).getCached(endpoint) : null;
+    }
+
+    static void onRendered(Context context, int widgetId, Payload payload, boolean done) {
+        if (payload == null || payload.getBody() == null || !done) {
+            recordFailure(context, widgetId);
+            return;
+        }
+        SharedPreferences sharedPrefs = getSharedPreferences(context);
+        if (payload.isProbed()) {
+            sharedPrefs.edit()
+                    .putString(endpointKey(widgetId), payload.getUrl())
+                    .remove(failuresKey(widgetId))
+                    .apply();
+        } else if (sharedPrefs.contains(failuresKey(widgetId))) {
+            sharedPrefs.edit().remove(failuresKey(widgetId)).apply();
+        }
+    }
+
+    static void forget(SharedPreferences.Editor editor, int widgetId) {
+        editor.remove(endpointKey(widgetId));
+        editor.remove(failuresKey(widgetId));
+    }
+
+    private static void recordFailure(Context context, int widgetId) {
+        SharedPreferences sharedPrefs = getSharedPreferences(context);
+        if (!sharedPrefs.contains(endpointKey(widgetId)))
+            return;
+        int failures = sharedPrefs.getInt(failuresKey(widgetId), 0) + 1;
+        SharedPreferences.Editor editor = sharedPrefs.edit();
+        if (failures >= MAX_FAILURES)
+            forget(editor, widgetId);
+        else
+            editor.putInt(failuresKey(widgetId), failures);
+        editor.apply();
+    }
+
+    private static String getKnownEndpoint(Context context, int widgetId, String url) {
+        if (FormatProbe.hasKnownFormat(url))
+            return url;
+        String endpoint = getSharedPreferences(context).getString(endpointKey(widgetId), null);
+        return endpoint != null && endpoint.startsWith(url + "/") ? endpoint : null;
+    }
+
+    private static SharedPreferences getSharedPreferences(Context context) {
+        return context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static String endpointKey(int widgetId) {
+        return "widget_" + widgetId + "_endpoint";
+    }
+
+    private static String failuresKey(int widgetId) {
+        return "widget_" + widgetId + "_failures";
+    }
+}
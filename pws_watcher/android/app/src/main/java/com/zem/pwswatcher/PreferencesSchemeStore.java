@@ -0,0 +1,27 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.zem.pwswatcher.network.SchemeStore;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+
+class PreferencesSchemeStore implements SchemeStore {
+    private final SharedPreferences sharedPrefs;
+
+    PreferencesSchemeStore(Context context) {
+        this.sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public String getScheme(String authority) {
+        return this.sharedPrefs.getString("scheme_" + authority, null);
+    }
+
+    @Override
+    public void putScheme(String authority, String scheme) {
+        if (!scheme.equals(getScheme(authority)))
+            this.sharedPrefs.edit().putString("scheme_" + authority, scheme).apply();
+    }
+}
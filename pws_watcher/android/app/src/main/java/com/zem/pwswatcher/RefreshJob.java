@@ -0,0 +1,199 @@
+package com.zem.pwswatcher;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.network.Payload;
+import com.zem.pwswatcher.parser.ObservationParser;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.io.StringReader;
+import java.util.concurrent.Future;
+
+// One widget refresh, run by RefreshPipeline: the cached payload first for widgets not painted yet
+// in this process, then the network. Fetching, parsing and building the RemoteViews all happen on
+// the pool thread; the main thread only hands the finished views to AppWidgetManager, unless a newer
+// refresh of the same widget or the tick deadline cancelled the job in the meantime.
+abstract class RefreshJob implements Runnable {
+    final Context context;
+    final int id;
+    final String url;
+    final UnitPreferences units;
+    long deadline;
+    // Observation time of the last payload rendered by this job, for SourceCadence
+    long observedAt = TimestampNormalizer.UNKNOWN;
+    volatile Future<?> future;
+    private volatile boolean cancelled = false;
+    private long fetchNanos = 0;
+    private long parseNanos = 0;
+    private long buildNanos = 0;
+    private long publishNanos = 0;
+
+    RefreshJob(Context context, int id, String url, UnitPreferences units) {
+        this.context = context.getApplicationContext();
+        this.id = id;
+        this.url = url;
+        this.units = units;
+    }
+
+    protected abstract int getLayoutId();
+
+    // Fills the texts and icons of the widget from observation
+    protected abstract boolean visualize(Observation observation, WidgetViewState view);
+
+    // Everything a full update sends besides the WidgetViewState: sizes, visibilities, colors and intents
+    protected abstract void decorate(RemoteViews view, Format format);
+
+    boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    void cancel() {
+        this.cancelled = true;
+        Future<?> running = this.future;
+        if (running != null)
+            running.cancel(true);
+    }
+
+    @Override
+    public void run() {
+        if (this.cancelled || RefreshPipeline.isExpired(this))
+            return;
+        Payload payload;
+        long start = System.nanoTime();
+        try {
+            if (!RenderTracker.isRendered(this.id)) {
+                Payload cached = EndpointResolver.getCached(this.context, this.id, this.url);
+                final Update cachedUpdate = cached != null ? prepare(cached) : null;
+                if (cachedUpdate != null && cachedUpdate.view != null)
+                    RefreshPipeline.deliver(this, () -> publish(cachedUpdate), false);
+                start = System.nanoTime();
+            }
+            payload = EndpointResolver.fetch(this.context, this.id, this.url);
+        } catch (Exception e) {
+            // An interrupted fetch belongs to a cancelled job and must not count as a station failure
+            if (this.cancelled)
+                return;
+            e.printStackTrace();
+            payload = null;
+        }
+        this.fetchNanos = System.nanoTime() - start;
+        final Payload fetched = payload;
+        final boolean skipped = fetched != null && fetched.getBody() != null && fetched.isNotModified()
+                && RenderTracker.isCurrent(this.id, fetched.getUrl(), this.units);
+        final Update update = fetched != null && fetched.getBody() != null && !skipped ? prepare(fetched) : null;
+        RefreshPipeline.deliver(this, () -> {
+            boolean done;
+            if (skipped) {
+                RenderTracker.recordSkipped();
+                done = true;
+            } else {
+                done = update != null && publish(update);
+            }
+            EndpointResolver.onRendered(this.context, this.id, fetched, done);
+            SourceCadence.onFetched(this.context, this.url, fetched, this.observedAt);
+            RenderTimings.record(this.fetchNanos, this.parseNanos, this.buildNanos, this.publishNanos);
+            Log.d("PWSWatcher", "Widget #" + this.id + " refreshed: fetch " + this.fetchNanos / 1000000 + " ms, parse "
+                    + this.parseNanos / 1000000 + " ms, build " + this.buildNanos / 1000000 + " ms, publish "
+                    + this.publishNanos / 1000000 + " ms");
+        }, true);
+    }
+
+    // Pool thread: parses payload and builds the views to send. Null when it could not be rendered,
+    // an update without views when the widget already shows this reading.
+    private Update prepare(Payload payload) {
+        String url = payload.getUrl();
+        Format format = Format.fromUrl(url);
+        try {
+            long start = System.nanoTime();
+            Observation observation = ObservationParser.parse(format, new StringReader(payload.getBody()));
+            if (observation == null)
+                return null;
+            long observedAt = TimestampNormalizer.toEpochMillis(observation);
+            this.observedAt = observedAt;
+            long parsed = System.nanoTime();
+            this.parseNanos = parsed - start;
+            if (RenderTracker.isStale(this.id, url, format, observedAt, this.units))
+                return new Update(url, format, null, null, null, 0, observedAt);
+            WidgetViewState state = new WidgetViewState();
+            if (!visualize(observation, state))
+                return null;
+            WidgetViewState base = RenderTracker.getPartialBase(this.id, format);
+            RemoteViews view = new RemoteViews(this.context.getPackageName(), getLayoutId());
+            int changes = 0;
+            if (base == null) {
+                state.applyTo(view);
+                decorate(view, format);
+            } else {
+                changes = state.applyChangesTo(view, base);
+            }
+            this.buildNanos = System.nanoTime() - parsed;
+            return new Update(url, format, state, base, view, changes, observedAt);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Main thread
+    private boolean publish(Update update) {
+        if (update.view == null)
+            return true;
+        // The cached paint of a widget with nothing on screen yet may have landed after this update
+        // was prepared, with the same reading
+        if (update.base == null && RenderTracker.isStale(this.id, update.url, update.format, update.observedAt, this.units))
+            return true;
+        long start = System.nanoTime();
+        try {
+            AppWidgetManager manager = AppWidgetManager.getInstance(this.context);
+            WidgetViewState base = update.base != null ? RenderTracker.getPartialBase(this.id, update.format) : null;
+            if (update.base == null || base != update.base) {
+                RemoteViews view = update.view;
+                // The diff was taken against a render that is no longer the current one, rare enough
+                // to rebuild the full views here rather than on the pool thread
+                if (update.base != null) {
+                    view = new RemoteViews(this.context.getPackageName(), getLayoutId());
+                    update.state.applyTo(view);
+                    decorate(view, update.format);
+                }
+                manager.updateAppWidget(this.id, view);
+                RenderTracker.markFullRender(this.id, update.url, update.format, update.state, update.observedAt, this.units);
+            } else {
+                if (update.changes > 0)
+                    manager.partiallyUpdateAppWidget(this.id, update.view);
+                RenderTracker.markPartialRender(this.id, update.url, update.state, update.changes, update.observedAt, this.units);
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            this.publishNanos = System.nanoTime() - start;
+        }
+    }
+
+    private static class Update {
+        final String url;
+        final Format format;
+        final WidgetViewState state;
+        final WidgetViewState base;
+        final RemoteViews view;
+        final int changes;
+        final long observedAt;
+
+        Update(String url, Format format, WidgetViewState state, WidgetViewState base, RemoteViews view, int changes,
+               long observedAt) {
+            this.url = url;
+            this.format = format;
+            this.state = state;
+            this.base = base;
+            this.view = view;
+            this.changes = changes;
+            this.observedAt = observedAt;
+        }
+    }
+}
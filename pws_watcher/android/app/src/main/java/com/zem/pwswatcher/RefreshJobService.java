@@ -0,0 +1,29 @@
+package com.zem.pwswatcher;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+// JobScheduler side of RefreshScheduler: one network-constrained job per refresh window, which
+// the system defers through Doze and app standby and batches with other apps' work. The job is
+// held until every refresh it started is done or past its tick deadline.
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class RefreshJobService extends JobService {
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        RefreshScheduler.onJobStarted();
+        RefreshScheduler.dispatchTick(this, RefreshScheduler.BACKEND_JOB);
+        RefreshPipeline.whenIdle(() -> {
+            jobFinished(params, false);
+            RefreshScheduler.onJobFinished(this);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        RefreshScheduler.onJobFinished(this);
+        return false;
+    }
+}
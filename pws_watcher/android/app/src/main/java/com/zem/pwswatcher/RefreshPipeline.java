@@ -0,0 +1,220 @@
+package com.zem.pwswatcher;
+
+import android.content.BroadcastReceiver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs widget refreshes on a small thread pool instead of the serial AsyncTask executor, so one
+// slow station no longer holds up the others. At most MAX_PER_HOST jobs talk to the same host at
+// once, the rest wait in a per-host queue. Every job belongs to a tick and is cancelled when the
+// tick deadline passes or when a newer refresh of the same widget is submitted.
+class RefreshPipeline {
+    private static final int THREADS = 4;
+    private static final int MAX_PER_HOST = 2;
+    private static final long TICK_DEADLINE_MS = 45000;
+    // Background broadcasts are declared ANR after 60 s
+    private static final long BROADCAST_DEADLINE_MS = 50000;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final SparseArray<RefreshJob> jobs = new SparseArray<>();
+    private static final Map<String, Integer> runningPerHost = new HashMap<>();
+    private static final Map<String, ArrayDeque<RefreshJob>> waitingPerHost = new HashMap<>();
+    private static final List<Runnable> idleCallbacks = new ArrayList<>();
+    private static long tickDeadline = 0;
+
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong superseded = new AtomicLong();
+    private static final AtomicLong expired = new AtomicLong();
+    private static final AtomicLong completed = new AtomicLong();
+
+    private RefreshPipeline() {
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "PWSWatcher-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // Starts a new deadline window; refreshes submitted outside of one open their own
+    static synchronized void beginTick() {
+        tickDeadline = SystemClock.elapsedRealtime() + TICK_DEADLINE_MS;
+        mainHandler.postDelayed(RefreshPipeline::expireOverdue, TICK_DEADLINE_MS);
+    }
+
+    static synchronized void submit(RefreshJob job) {
+        if (tickDeadline <= SystemClock.elapsedRealtime())
+            beginTick();
+        job.deadline = tickDeadline;
+        RefreshJob previous = jobs.get(job.id);
+        if (previous != null) {
+            previous.cancel();
+            superseded.incrementAndGet();
+        }
+        jobs.put(job.id, job);
+        submitted.incrementAndGet();
+        String host = hostOf(job.url);
+        ArrayDeque<RefreshJob> waiting = waitingPerHost.get(host);
+        if (waiting == null) {
+            waiting = new ArrayDeque<>();
+            waitingPerHost.put(host, waiting);
+        }
+        waiting.add(job);
+        drain(host);
+    }
+
+    // Runs callback on the main thread once no refresh is queued or running any more
+    static synchronized void whenIdle(Runnable callback) {
+        if (jobs.size() == 0)
+            mainHandler.post(callback);
+        else
+            idleCallbacks.add(callback);
+    }
+
+    // Keeps the broadcast that submitted refreshes open until they have all rendered or expired, so
+    // the process is not considered idle and killed while fetches are still running. The pending
+    // result is finished after BROADCAST_DEADLINE_MS at the latest.
+    static void holdBroadcast(BroadcastReceiver receiver) {
+        final BroadcastReceiver.PendingResult result = receiver.goAsync();
+        if (result == null)
+            return;
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final Runnable finish = new Runnable() {
+            @Override
+            public void run() {
+                if (finished.compareAndSet(false, true)) {
+                    mainHandler.removeCallbacks(this);
+                    result.finish();
+                }
+            }
+        };
+        mainHandler.postDelayed(finish, BROADCAST_DEADLINE_MS);
+        whenIdle(finish);
+    }
+
+    static boolean isExpired(RefreshJob job) {
+        return SystemClock.elapsedRealtime() > job.deadline;
+    }
+
+    static void deliver(final RefreshJob job, final Runnable result, final boolean last) {
+        mainHandler.post(() -> {
+            if (job.isCancelled())
+                return;
+            result.run();
+            if (last)
+                finish(job);
+        });
+    }
+
+    private static void drain(final String host) {
+        ArrayDeque<RefreshJob> waiting = waitingPerHost.get(host);
+        Integer counted = runningPerHost.get(host);
+        int running = counted != null ? counted : 0;
+        while (running < MAX_PER_HOST && waiting != null && !waiting.isEmpty()) {
+            final RefreshJob job = waiting.poll();
+            if (job.isCancelled())
+                continue;
+            running++;
+            // done() also runs when the job is cancelled before it started, so the slot always comes back
+            FutureTask<Void> task = new FutureTask<Void>(job, null) {
+                @Override
+                protected void done() {
+                    onJobDone(host);
+                }
+            };
+            job.future = task;
+            executor.execute(task);
+        }
+        if (waiting != null && waiting.isEmpty())
+            waitingPerHost.remove(host);
+        if (running > 0)
+            runningPerHost.put(host, running);
+        else
+            runningPerHost.remove(host);
+    }
+
+    private static synchronized void onJobDone(String host) {
+        Integer running = runningPerHost.get(host);
+        if (running != null)
+            runningPerHost.put(host, running - 1);
+        drain(host);
+    }
+
+    // The next alarm is planned from what this tick learned once its last job is done
+    private static synchronized void finish(RefreshJob job) {
+        if (jobs.get(job.id) == job)
+            jobs.remove(job.id);
+        completed.incrementAndGet();
+        if (jobs.size() == 0) {
+            RefreshScheduler.schedule(job.context);
+            runIdleCallbacks();
+        }
+    }
+
+    private static synchronized void expireOverdue() {
+        long now = SystemClock.elapsedRealtime();
+        for (int i = jobs.size() - 1; i >= 0; i--) {
+            RefreshJob job = jobs.valueAt(i);
+            if (job.deadline <= now) {
+                job.cancel();
+                jobs.removeAt(i);
+                expired.incrementAndGet();
+            }
+        }
+        if (jobs.size() == 0)
+            runIdleCallbacks();
+    }
+
+    private static void runIdleCallbacks() {
+        for (Runnable callback : idleCallbacks)
+            mainHandler.post(callback);
+        idleCallbacks.clear();
+    }
+
+    private static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.indexOf('/', start);
+        return (end < 0 ? url.substring(start) : url.substring(start, end)).toLowerCase();
+    }
+
+    public static long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public static long getSupersededCount() {
+        return superseded.get();
+    }
+
+    public static long getExpiredCount() {
+        return expired.get();
+    }
+
+    public static long getCompletedCount() {
+        return completed.get();
+    }
+}
@@ -0,0 +1,15 @@
+package com.zem.pwswatcher;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+public class RefreshReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (RefreshScheduler.ACTION_TICK.equals(intent.getAction())) {
+            RefreshScheduler.dispatchTick(context, RefreshScheduler.BACKEND_ALARM);
+            RefreshPipeline.holdBroadcast(this);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.zem.pwswatcher;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+
+// Owns the single wakeup of the app. It is planned for the earliest moment any configured source is
+// due according to SourceCadence, never later than the user's refresh interval for live stations.
+// Every tick refreshes the widgets whose source is due (or nearly due, so close deadlines share one
+// wakeup) and plans the next one. From Lollipop on the tick is a JobScheduler job that needs a
+// network and may run anywhere inside a flex window, so Doze and standby buckets can defer it and
+// the system can batch it with other work; older devices use an inexact window alarm instead.
+public class RefreshScheduler {
+    static final String ACTION_TICK = "com.zem.pwswatcher.UPDATE";
+    static final String BACKEND_ALARM = "alarm";
+    static final String BACKEND_JOB = "job";
+    private static final String BACKEND_KEY = "widget_refresh_backend";
+    private static final String STATS_PREFERENCES_NAME = "refresh_scheduler";
+    private static final int REQUEST_CODE = 0;
+    private static final int JOB_ID = 4200;
+    private static final long BATCH_WINDOW_MS = 60000;
+    private static final long MAX_FLEX_MS = 5 * 60000;
+
+    private static final AtomicLong ticks = new AtomicLong();
+    private static final AtomicLong dispatches = new AtomicLong();
+    private static final Set<String> tickSources = new HashSet<>();
+    private static volatile boolean jobRunning = false;
+    private static int lastTickWidgets = 0;
+    private static int lastTickSources = 0;
+
+    private RefreshScheduler() {
+    }
+
+    static void schedule(Context context) {
+        long refreshRate = getRefreshRate(context);
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for (String url : getSourceUrls(context))
+            next = Math.min(next, SourceCadence.getNextDue(context, url, refreshRate));
+        if (next == Long.MAX_VALUE)
+            next = now + refreshRate;
+        long delay = Math.max(next - now, SourceCadence.MIN_INTERVAL_MS);
+        // A quarter of the wait, so a 15 minute refresh may slip by up to ~4 minutes
+        long flex = Math.min(delay / 4, MAX_FLEX_MS);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (BACKEND_JOB.equals(getBackend(context))) {
+            // Rescheduling the running job would stop it; onJobFinished plans the next one instead
+            if (jobRunning)
+                return;
+            scheduleJob(context, delay, flex);
+            alarmManager.cancel(getTickIntent(context));
+        } else {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+                alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delay, flex, getTickIntent(context));
+            else
+                alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delay, getTickIntent(context));
+            cancelJob(context);
+        }
+        cancelLegacyAlarms(context, alarmManager);
+    }
+
+    static void cancelIfUnused(Context context) {
+        if (getAllWidgetCount(context) > 0)
+            return;
+        PendingIntent tickIntent = getTickIntent(context);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(tickIntent);
+        tickIntent.cancel();
+        cancelJob(context);
+    }
+
+    // "alarm" can be forced through the refresh_scheduler preferences to compare both backends
+    static String getBackend(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)
+            return BACKEND_ALARM;
+        SharedPreferences stats = context.getSharedPreferences(STATS_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        return BACKEND_ALARM.equals(stats.getString(BACKEND_KEY, null)) ? BACKEND_ALARM : BACKEND_JOB;
+    }
+
+    static void onJobStarted() {
+        jobRunning = true;
+    }
+
+    static void onJobFinished(Context context) {
+        jobRunning = false;
+        schedule(context);
+    }
+
+    static void dispatchTick(Context context, String backend) {
+        recordWakeup(context, backend);
+        AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
+        int[] largeIds = widgetManager.getAppWidgetIds(new ComponentName(context, Widget.class));
+        int[] mediumIds = widgetManager.getAppWidgetIds(new ComponentName(context, WidgetMedium.class));
+        int[] smallIds = widgetManager.getAppWidgetIds(new ComponentName(context, WidgetSmall.class));
+        synchronized (tickSources) {
+            tickSources.clear();
+        }
+        ticks.incrementAndGet();
+        RefreshPipeline.beginTick();
+        long refreshRate = getRefreshRate(context);
+        largeIds = getDueIds(context, largeIds, refreshRate);
+        mediumIds = getDueIds(context, mediumIds, refreshRate);
+        smallIds = getDueIds(context, smallIds, refreshRate);
+        Widget.refresh(context, largeIds);
+        WidgetMedium.refresh(context, mediumIds);
+        WidgetSmall.refresh(context, smallIds);
+        synchronized (tickSources) {
+            lastTickWidgets = largeIds.length + mediumIds.length + smallIds.length;
+            lastTickSources = tickSources.size();
+        }
+        schedule(context);
+        Log.d("PWSWatcher", "Refresh tick #" + ticks.get() + " (" + backend + "): " + lastTickWidgets + " widgets, " + lastTickSources + " sources");
+    }
+
+    static void recordDispatch(int widgetId, String url) {
+        dispatches.incrementAndGet();
+        synchronized (tickSources) {
+            tickSources.add(url);
+        }
+    }
+
+    public static long getTickCount() {
+        return ticks.get();
+    }
+
+    public static long getDispatchCount() {
+        return dispatches.get();
+    }
+
+    public static int getLastTickWidgetCount() {
+        synchronized (tickSources) {
+            return lastTickWidgets;
+        }
+    }
+
+    public static int getLastTickSourceCount() {
+        synchronized (tickSources) {
+            return lastTickSources;
+        }
+    }
+
+    // Ticks delivered by a backend per hour since it was first used, for comparing battery cost
+    public static double getWakeupsPerHour(Context context, String backend) {
+        SharedPreferences stats = context.getSharedPreferences(STATS_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        long since = stats.getLong(backend + "_since", 0);
+        if (since == 0)
+            return 0.0;
+        double hours = Math.max(System.currentTimeMillis() - since, 60000) / 3600000.0;
+        return stats.getLong(backend + "_ticks", 0) / hours;
+    }
+
+    private static void recordWakeup(Context context, String backend) {
+        SharedPreferences stats = context.getSharedPreferences(STATS_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = stats.edit();
+        if (stats.getLong(backend + "_since", 0) == 0)
+            editor.putLong(backend + "_since", System.currentTimeMillis());
+        editor.putLong(backend + "_ticks", stats.getLong(backend + "_ticks", 0) + 1);
+        editor.apply();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context, long delay, long flex) {
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, RefreshJobService.class))
+                .setMinimumLatency(delay)
+                .setOverrideDeadline(delay + flex)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .build();
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.schedule(job);
+    }
+
+    private static void cancelJob(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)
+            return;
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.cancel(JOB_ID);
+    }
+
+    private static long getRefreshRate(Context context) {
+        SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        return sharedPrefs.getLong("flutter.widget_refresh_interval", 15) * 60000;
+    }
+
+    private static int[] getDueIds(Context context, int[] widgetIds, long refreshRate) {
+        long dueBy = System.currentTimeMillis() + BATCH_WINDOW_MS;
+        int[] due = new int[widgetIds.length];
+        int count = 0;
+        for (int widgetId : widgetIds) {
+            WidgetConfig config = WidgetConfigStore.get(context, widgetId);
+            if (config != null && SourceCadence.getNextDue(context, config.getSource().getUrl(), refreshRate) <= dueBy)
+                due[count++] = widgetId;
+        }
+        return Arrays.copyOf(due, count);
+    }
+
+    private static Set<String> getSourceUrls(Context context) {
+        AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
+        Set<String> urls = new HashSet<>();
+        Class<?>[] providers = {Widget.class, WidgetMedium.class, WidgetSmall.class};
+        for (Class<?> provider : providers) {
+            for (int widgetId : widgetManager.getAppWidgetIds(new ComponentName(context, provider))) {
+                WidgetConfig config = WidgetConfigStore.get(context, widgetId);
+                if (config != null)
+                    urls.add(config.getSource().getUrl());
+            }
+        }
+        return urls;
+    }
+
+    private static int getAllWidgetCount(Context context) {
+        AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
+        return widgetManager.getAppWidgetIds(new ComponentName(context, Widget.class)).length
+                + widgetManager.getAppWidgetIds(new ComponentName(context, WidgetMedium.class)).length
+                + widgetManager.getAppWidgetIds(new ComponentName(context, WidgetSmall.class)).length;
+    }
+
+    // Older versions armed one alarm per provider class; drop them so they stop waking the device.
+    private static void cancelLegacyAlarms(Context context, AlarmManager alarmManager) {
+        Class<?>[] providers = {Widget.class, WidgetMedium.class, WidgetSmall.class};
+        for (Class<?> provider : providers) {
+            Intent legacyIntent = new Intent(context, provider);
+            legacyIntent.setAction(ACTION_TICK);
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(context, REQUEST_CODE, legacyIntent, PendingIntent.FLAG_NO_CREATE);
+            if (pendingIntent != null) {
+                alarmManager.cancel(pendingIntent);
+                pendingIntent.cancel();
+            }
+        }
+    }
+
+    private static PendingIntent getTickIntent(Context context) {
+        Intent tickIntent = new Intent(context, RefreshReceiver.class);
+        tickIntent.setAction(ACTION_TICK);
+        return PendingIntent.getBroadcast(context, REQUEST_CODE, tickIntent, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.zem.pwswatcher;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time spent by finished refreshes in each stage. Fetch, parse and build run on the pool threads,
+// publish is the only part left on the main thread.
+class RenderTimings {
+    private static final AtomicLong refreshes = new AtomicLong();
+    private static final AtomicLong fetchNanos = new AtomicLong();
+    private static final AtomicLong parseNanos = new AtomicLong();
+    private static final AtomicLong buildNanos = new AtomicLong();
+    private static final AtomicLong publishNanos = new AtomicLong();
+    private static final AtomicLong maxPublishNanos = new AtomicLong();
+
+    private RenderTimings() {
+    }
+
+    static void record(long fetch, long parse, long build, long publish) {
+        refreshes.incrementAndGet();
+        fetchNanos.addAndGet(fetch);
+        parseNanos.addAndGet(parse);
+        buildNanos.addAndGet(build);
+        publishNanos.addAndGet(publish);
+        long max;
+        while (publish > (max = maxPublishNanos.get()) && !maxPublishNanos.compareAndSet(max, publish)) {
+        }
+    }
+
+    static long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    static double getAverageFetchMillis() {
+        return average(fetchNanos);
+    }
+
+    static double getAverageParseMillis() {
+        return average(parseNanos);
+    }
+
+    static double getAverageBuildMillis() {
+        return average(buildNanos);
+    }
+
+    static double getAveragePublishMillis() {
+        return average(publishNanos);
+    }
+
+    static double getMaxPublishMillis() {
+        return maxPublishNanos.get() / 1e6;
+    }
+
+    private static double average(AtomicLong total) {
+        long count = refreshes.get();
+        return count > 0 ? total.get() / 1e6 / count : 0.0;
+    }
+}
@@ -0,0 +1,138 @@
+package com.zem.pwswatcher;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers what each widget last painted in this process: the station URL and units, so an
+// unchanged (304) payload can skip parsing and the RemoteViews update altogether, and the texts
+// and icons, so a changed payload only sends the views that differ through partiallyUpdateAppWidget.
+// Partial updates are not kept by the widget host, so a full update (layout, styling and click
+// intents included) is sent again on configuration changes, format changes and once an hour.
+// A new payload whose observation time has not advanced past the painted one is not sent at all.
+class RenderTracker {
+    private static final long FULL_UPDATE_INTERVAL_MS = 60 * 60000;
+
+    private static final SparseArray<Rendered> rendered = new SparseArray<>();
+    private static final AtomicLong skippedUpdates = new AtomicLong();
+    private static final AtomicLong fullUpdates = new AtomicLong();
+    private static final AtomicLong partialUpdates = new AtomicLong();
+    private static final AtomicLong unchangedUpdates = new AtomicLong();
+    private static final AtomicLong staleObservations = new AtomicLong();
+
+    private RenderTracker() {
+    }
+
+    static synchronized boolean isCurrent(int widgetId, String url, UnitPreferences units) {
+        Rendered last = rendered.get(widgetId);
+        return last != null && url.equals(last.url) && last.units == units;
+    }
+
+    static synchronized boolean isRendered(int widgetId) {
+        return rendered.get(widgetId) != null;
+    }
+
+    // The widgets of widgetIds with nothing painted yet in this process
+    static synchronized int[] getUnrendered(int[] widgetIds) {
+        int[] unrendered = new int[widgetIds.length];
+        int count = 0;
+        for (int widgetId : widgetIds) {
+            if (rendered.get(widgetId) == null)
+                unrendered[count++] = widgetId;
+        }
+        return Arrays.copyOf(unrendered, count);
+    }
+
+    // The state to diff against, or null when the next update has to be a full one
+    static synchronized WidgetViewState getPartialBase(int widgetId, Format format) {
+        Rendered last = rendered.get(widgetId);
+        if (last == null || last.format != format
+                || SystemClock.elapsedRealtime() - last.fullUpdateAt > FULL_UPDATE_INTERVAL_MS)
+            return null;
+        return last.state;
+    }
+
+    // True when the widget already shows this station reading with the same units, so nothing
+    // needs to be sent; observedAt is TimestampNormalizer.UNKNOWN when the time could not be read.
+    static synchronized boolean isStale(int widgetId, String url, Format format, long observedAt, UnitPreferences units) {
+        if (observedAt == TimestampNormalizer.UNKNOWN || getPartialBase(widgetId, format) == null)
+            return false;
+        Rendered last = rendered.get(widgetId);
+        if (!url.equals(last.url) || last.units != units || last.observedAt == TimestampNormalizer.UNKNOWN
+                || observedAt > last.observedAt)
+            return false;
+        staleObservations.incrementAndGet();
+        return true;
+    }
+
+    static synchronized void markFullRender(int widgetId, String url, Format format, WidgetViewState state,
+                                            long observedAt, UnitPreferences units) {
+        rendered.put(widgetId, new Rendered(url, format, state, SystemClock.elapsedRealtime(), observedAt, units));
+        fullUpdates.incrementAndGet();
+    }
+
+    static synchronized void markPartialRender(int widgetId, String url, WidgetViewState state, int changes,
+                                               long observedAt, UnitPreferences units) {
+        Rendered last = rendered.get(widgetId);
+        if (last == null)
+            return;
+        rendered.put(widgetId, new Rendered(url, last.format, state, last.fullUpdateAt, observedAt, units));
+        if (changes > 0)
+            partialUpdates.incrementAndGet();
+        else
+            unchangedUpdates.incrementAndGet();
+    }
+
+    static synchronized void invalidate(int[] widgetIds) {
+        for (int widgetId : widgetIds)
+            rendered.remove(widgetId);
+    }
+
+    static void recordSkipped() {
+        skippedUpdates.incrementAndGet();
+    }
+
+    static long getSkippedUpdateCount() {
+        return skippedUpdates.get();
+    }
+
+    static long getStaleObservationCount() {
+        return staleObservations.get();
+    }
+
+    static long getFullUpdateCount() {
+        return fullUpdates.get();
+    }
+
+    static long getPartialUpdateCount() {
+        return partialUpdates.get();
+    }
+
+    static long getUnchangedUpdateCount() {
+        return unchangedUpdates.get();
+    }
+
+    private static class Rendered {
+        final String url;
+        final Format format;
+        final WidgetViewState state;
+        final long fullUpdateAt;
+        final long observedAt;
+        final UnitPreferences units;
+
+        Rendered(String url, Format format, WidgetViewState state, long fullUpdateAt, long observedAt,
+                 UnitPreferences units) {
+            this.url = url;
+            this.format = format;
+            this.state = state;
+            this.fullUpdateAt = fullUpdateAt;
+            this.observedAt = observedAt;
+            this.units = units;
+        }
+    }
+}
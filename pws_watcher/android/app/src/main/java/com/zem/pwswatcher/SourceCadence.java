@@ -0,0 +1,174 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.zem.pwswatcher.network.Payload;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Learns how often each station really publishes from the timestamps of successive readings, so
+// the next fetch can be timed just after the next expected publish instead of on a fixed clock.
+// Station clocks are rarely in sync with ours (or in our time zone), so only differences between
+// station timestamps give the interval, and only for two readings known to be consecutive: when
+// the last fetch still showing the older one is less than half the gap away, no publish can have
+// been missed in between. Otherwise the gap would mostly reflect our own polling rate. The offset
+// to our clock is the smallest delay seen between a reading's timestamp and the moment it first
+// reached us. Stations that stop publishing or keep failing are polled exponentially less often.
+// State is kept per source URL in its own preferences file, since the process rarely survives
+// from one alarm to the next.
+class SourceCadence {
+    static final String PREFERENCES_NAME = "source_cadence";
+    static final long MIN_INTERVAL_MS = 60000;
+    private static final long PUBLISH_GRACE_MS = 30000;
+    private static final long MAX_BACKOFF_MS = 4 * 60 * 60000;
+    private static final int DEAD_AFTER_FAILURES = 2;
+    private static final int DEAD_AFTER_INTERVALS = 3;
+
+    private static final Map<String, State> states = new HashMap<>();
+
+    private SourceCadence() {
+    }
+
+    // Called on the main thread once the fetched payload of a refresh has been handled
+    static synchronized void onFetched(Context context, String url, Payload payload, long observedAt) {
+        long now = System.currentTimeMillis();
+        State state = get(context, url);
+        // Widgets sharing a source report the same fetch once each
+        boolean repeated = now - state.lastFetchAt < MIN_INTERVAL_MS;
+        state.lastFetchAt = now;
+        if (observedAt != TimestampNormalizer.UNKNOWN && observedAt > state.observedAt
+                && payload != null && payload.getBody() != null) {
+            learn(state, observedAt, now);
+        } else if (payload == null || payload.getBody() == null) {
+            if (!repeated)
+                state.failures++;
+        } else {
+            // A 304 still serves the reading we have, even when the widget skipped parsing it
+            if (observedAt == state.observedAt || payload.isNotModified())
+                state.confirmedAt = now;
+            state.failures = 0;
+        }
+        save(context, url, state);
+    }
+
+    // Wall clock time at which url should be fetched next. userInterval bounds how stale a live
+    // station may get: a reading due soon is fetched just after it is expected, one that is late
+    // is polled for every userInterval. Nothing is fetched before userInterval has passed unless a
+    // publish is expected earlier. Only dead stations go longer without a fetch.
+    static synchronized long getNextDue(Context context, String url, long userInterval) {
+        State state = get(context, url);
+        if (state.lastFetchAt == 0)
+            return 0;
+        long now = System.currentTimeMillis();
+        int doublings = getDeadDoublings(state, now, userInterval);
+        if (doublings >= 0) {
+            long backoff = Math.min(userInterval << Math.min(doublings + 1, 8), MAX_BACKOFF_MS);
+            return state.lastFetchAt + Math.max(backoff, userInterval);
+        }
+        long latest = state.lastFetchAt + userInterval;
+        if (state.interval <= 0)
+            return latest;
+        long expected = state.observedAt + state.offset + state.interval + PUBLISH_GRACE_MS;
+        if (expected <= state.lastFetchAt)
+            return latest;
+        long longest = state.lastFetchAt + Math.max(userInterval, state.interval);
+        return Math.max(Math.min(expected, longest), state.lastFetchAt + MIN_INTERVAL_MS);
+    }
+
+    private static void learn(State state, long observedAt, long now) {
+        long lag = now - observedAt;
+        if (state.observedAt > 0) {
+            long sample = observedAt - state.observedAt;
+            boolean consecutive = state.confirmedAt > 0 && (now - state.confirmedAt) * 2 < sample;
+            if (consecutive && sample >= MIN_INTERVAL_MS) {
+                if (state.interval <= 0)
+                    state.interval = sample;
+                else
+                    state.interval += (sample - state.interval) / 4;
+            }
+            if (lag < state.offset)
+                state.offset = lag;
+            else
+                state.offset += (lag - state.offset) / 8;
+        } else {
+            state.offset = lag;
+        }
+        state.observedAt = observedAt;
+        state.confirmedAt = now;
+        state.lastNewAt = now;
+        state.failures = 0;
+    }
+
+    // -1 while the station looks alive, otherwise how many times over the dead threshold it is:
+    // DEAD_AFTER_FAILURES failed fetches in a row or no new reading for DEAD_AFTER_INTERVALS intervals
+    private static int getDeadDoublings(State state, long now, long userInterval) {
+        int doublings = state.failures >= DEAD_AFTER_FAILURES ? state.failures - DEAD_AFTER_FAILURES : -1;
+        long threshold = DEAD_AFTER_INTERVALS * Math.max(state.interval, Math.max(userInterval, MIN_INTERVAL_MS));
+        long silence = now - state.lastNewAt;
+        if (state.lastNewAt > 0 && silence > threshold)
+            doublings = Math.max(doublings, 63 - Long.numberOfLeadingZeros(silence / threshold));
+        return doublings;
+    }
+
+    // Drops the in-memory states so the next call reads the preferences again
+    static synchronized void unload() {
+        states.clear();
+    }
+
+    private static State get(Context context, String url) {
+        State state = states.get(url);
+        if (state == null) {
+            state = State.decode(getPreferences(context).getString(url, null));
+            states.put(url, state);
+        }
+        return state;
+    }
+
+    private static void save(Context context, String url, State state) {
+        getPreferences(context).edit().putString(url, state.encode()).apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static class State {
+        long observedAt = 0;
+        long offset = 0;
+        long interval = 0;
+        long lastNewAt = 0;
+        long lastFetchAt = 0;
+        // Last fetch that still returned the reading at observedAt
+        long confirmedAt = 0;
+        int failures = 0;
+
+        String encode() {
+            return observedAt + ";" + offset + ";" + interval + ";" + lastNewAt + ";" + lastFetchAt + ";" + failures
+                    + ";" + confirmedAt;
+        }
+
+        static State decode(String encoded) {
+            State state = new State();
+            if (encoded == null)
+                return state;
+            String[] fields = encoded.split(";");
+            if (fields.length != 7)
+                return state;
+            try {
+                state.observedAt = Long.parseLong(fields[0]);
+                state.offset = Long.parseLong(fields[1]);
+                state.interval = Long.parseLong(fields[2]);
+                state.lastNewAt = Long.parseLong(fields[3]);
+                state.lastFetchAt = Long.parseLong(fields[4]);
+                state.failures = Integer.parseInt(fields[5]);
+                state.confirmedAt = Long.parseLong(fields[6]);
+            } catch (NumberFormatException e) {
+                return new State();
+            }
+            return state;
+        }
+    }
+}
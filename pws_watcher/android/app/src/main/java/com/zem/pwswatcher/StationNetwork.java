@@ -0,0 +1,39 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.HttpClientProvider;
+import com.zem.pwswatcher.network.PayloadCache;
+
+import java.io.File;
+
+// Builds the process-wide fetch stack with its Android-backed stores.
+class StationNetwork {
+    private static final long PAYLOAD_CACHE_BYTES = 2 * 1024 * 1024;
+    private static volatile FetchCoordinator coordinator;
+
+    private StationNetwork() {
+    }
+
+    static FetchCoordinator getCoordinator(Context context) {
+        FetchCoordinator result = coordinator;
+        if (result == null) {
+            synchronized (StationNetwork.class) {
+                result = coordinator;
+                if (result == null) {
+                    Context appContext = context.getApplicationContext();
+                    PayloadCache cache = new PayloadCache(new File(appContext.getCacheDir(), "payloads"), PAYLOAD_CACHE_BYTES);
+                    result = new FetchCoordinator(HttpClientProvider.getClient(), new PreferencesSchemeStore(appContext), cache);
+                    coordinator = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Drops the coordinator, and with it the bodies it shares, so the next call builds a new one
+    static synchronized void unload() {
+        coordinator = null;
+    }
+}
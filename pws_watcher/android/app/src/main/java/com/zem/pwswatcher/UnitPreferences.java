@@ -0,0 +1,91 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.zem.pwswatcher.units.Quantity;
+import com.zem.pwswatcher.units.Unit;
+
+// Immutable snapshot of the units chosen in the app settings. One snapshot is read per tick and
+// handed to every render job; a preference listener swaps in a new one when the app changes a unit.
+class UnitPreferences {
+    private static final String TEMPERATURE_KEY = "flutter.prefTempUnit";
+    private static final String PRESSURE_KEY = "flutter.prefPressUnit";
+    private static final String RAIN_KEY = "flutter.prefRainUnit";
+    private static final String WIND_SPEED_KEY = "flutter.prefWindUnit";
+
+    private static volatile UnitPreferences current;
+    // SharedPreferences only keeps a weak reference to its listeners
+    private static SharedPreferences.OnSharedPreferenceChangeListener listener;
+
+    private final String temperatureUnit;
+    private final String pressureUnit;
+    private final String rainUnit;
+    private final String windSpeedUnit;
+    private final Unit temperatureUnitCode;
+    private final Unit pressureUnitCode;
+    private final Unit rainUnitCode;
+    private final Unit windSpeedUnitCode;
+
+    UnitPreferences(SharedPreferences sharedPrefs) {
+        this.temperatureUnit = sharedPrefs.getString(TEMPERATURE_KEY, "°C");
+        this.pressureUnit = sharedPrefs.getString(PRESSURE_KEY, "mb");
+        this.rainUnit = sharedPrefs.getString(RAIN_KEY, "mm");
+        this.windSpeedUnit = sharedPrefs.getString(WIND_SPEED_KEY, "km/h");
+        this.temperatureUnitCode = Unit.of(this.temperatureUnit, Quantity.TEMPERATURE);
+        this.pressureUnitCode = Unit.of(this.pressureUnit, Quantity.PRESSURE);
+        this.rainUnitCode = Unit.of(this.rainUnit, Quantity.RAIN);
+        this.windSpeedUnitCode = Unit.of(this.windSpeedUnit, Quantity.WIND_SPEED);
+    }
+
+    static UnitPreferences get(Context context) {
+        UnitPreferences snapshot = current;
+        if (snapshot != null)
+            return snapshot;
+        synchronized (UnitPreferences.class) {
+            if (current == null) {
+                SharedPreferences sharedPrefs = context.getApplicationContext()
+                        .getSharedPreferences(WidgetConfigurationActivity.SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+                listener = (prefs, key) -> {
+                    if (TEMPERATURE_KEY.equals(key) || PRESSURE_KEY.equals(key) || RAIN_KEY.equals(key) || WIND_SPEED_KEY.equals(key))
+                        current = new UnitPreferences(prefs);
+                };
+                sharedPrefs.registerOnSharedPreferenceChangeListener(listener);
+                current = new UnitPreferences(sharedPrefs);
+            }
+            return current;
+        }
+    }
+
+    String getTemperatureUnit() {
+        return temperatureUnit;
+    }
+
+    String getPressureUnit() {
+        return pressureUnit;
+    }
+
+    String getRainUnit() {
+        return rainUnit;
+    }
+
+    String getWindSpeedUnit() {
+        return windSpeedUnit;
+    }
+
+    Unit getTemperatureUnitCode() {
+        return temperatureUnitCode;
+    }
+
+    Unit getPressureUnitCode() {
+        return pressureUnitCode;
+    }
+
+    Unit getRainUnitCode() {
+        return rainUnitCode;
+    }
+
+    Unit getWindSpeedUnitCode() {
+        return windSpeedUnitCode;
+    }
+}
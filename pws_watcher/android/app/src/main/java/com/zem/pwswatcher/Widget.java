@@ -1,6 +1,5 @@
 package com.zem.pwswatcher;
 
-import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
@@ -9,52 +8,23 @@ import android.content.Intent;
 import android.content.ComponentName;
 import android.content.SharedPreferences;
 import android.net.Uri;
-import android.os.AsyncTask;
-import android.os.Bundle;
-import android.os.SystemClock;
 import android.util.Log;
-import android.util.TypedValue;
 import android.view.View;
 import android.widget.RemoteViews;
 import android.os.Build;
 import android.graphics.Color;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserFactory;
-
-import java.math.BigDecimal;
-import java.io.StringReader;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
-
-import okhttp3.Call;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
 import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.units.UnitConverter;
 import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
 
 
 public class Widget extends AppWidgetProvider {
-    static final String UPDATE_FILTER = "com.zem.pwswatcher.UPDATE";
+    static final String UPDATE_FILTER = "com.zem.pwswatcher.UPDATE_WIDGET";
     private static final String onRefreshClick = "REFRESH_TAG";
-    static String prefWindUnit = "km/h";
-    static String prefRainUnit = "mm";
-    static String prefPressUnit = "mb";
-    static String prefTempUnit = "°C";
-    static String prefDewUnit = "°C";
-    private float fontSizeMultiplier = 1.0f;
-    private boolean humidityVisible = true;
-    private boolean pressureVisible = true;
-    private boolean rainVisible = true;
-    private boolean windspeedVisible = true;
-    private int bgColor = android.graphics.Color.parseColor("#03A9F4");
-    private int textColor = android.graphics.Color.parseColor("#FFFFFF");
+    private static final int[] CONDITION_ICONS = {R.drawable.sunny, R.drawable.clear_night, R.drawable.cloudy, R.drawable.cloudy, R.drawable.cloudy_night, R.drawable.sunny, R.drawable.fog, R.drawable.fog, R.drawable.heavy_rain, R.drawable.sunny, R.drawable.fog, R.drawable.fog_night, R.drawable.heavy_rain, R.drawable.cloudy_night, R.drawable.rain, R.drawable.heavy_rain, R.drawable.snow, R.drawable.storm, R.drawable.partly_cloudy, R.drawable.partly_cloudy, R.drawable.rain, R.drawable.heavy_rain, R.drawable.heavy_rain, R.drawable.snow, R.drawable.snow, R.drawable.snow, R.drawable.snow_melt, R.drawable.snow, R.drawable.sunny, R.drawable.storm, R.drawable.storm, R.drawable.storm, R.drawable.windy, R.drawable.windy, R.drawable.stopped_raining, R.drawable.rain, R.drawable.sunrise, R.drawable.sunset};
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -65,131 +35,54 @@ public class Widget extends AppWidgetProvider {
         int[] widgetId = widgetManager.getAppWidgetIds(widgetComponent);
         int widgetNum = widgetId.length;
         if (intent.getAction().equals(AppWidgetManager.ACTION_APPWIDGET_UPDATE)) {
-            SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-            Intent updateIntent = new Intent(context, Widget.class);
-            updateIntent.setAction(UPDATE_FILTER);
-            PendingIntent pendingUpdateIntent = PendingIntent.getBroadcast(context, 0, updateIntent, 0);
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            long refreshRate = sharedPrefs.getLong("flutter.widget_refresh_interval", 15);
-            alarmManager.setRepeating(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime(), refreshRate * 60000, pendingUpdateIntent);
-        } else if (intent.getAction().equals(UPDATE_FILTER)) {
-            SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-            for (int i = 0; i < widgetNum; i++) {
-                String sourceJSON = sharedPrefs.getString("widget_" + widgetId[i], null);
-                Widget.prefWindUnit = sharedPrefs.getString("flutter.prefWindUnit", "km/h");
-                Widget.prefRainUnit= sharedPrefs.getString("flutter.prefRainUnit", "mm");
-                Widget.prefPressUnit= sharedPrefs.getString("flutter.prefPressUnit", "mb");
-                Widget.prefTempUnit= sharedPrefs.getString("flutter.prefTempUnit", "°C");
-                Widget.prefDewUnit= sharedPrefs.getString("flutter.prefDewUnit", "°C");
-                if (sourceJSON != null) {
-                    Source source = null;
-                    try {
-                        JSONObject rootObj = new JSONObject(sourceJSON);
-                        JSONObject sourceObj = rootObj.getJSONObject("source");
-                        source = new Source(sourceObj.getInt("id"), sourceObj.getString("name"), sourceObj.getString("url"));
-                        this.fontSizeMultiplier = BigDecimal.valueOf(rootObj.getDouble("fontSizeMultiplier")).floatValue();
-                        this.humidityVisible = rootObj.getBoolean("humidityVisible");
-                        this.pressureVisible = rootObj.getBoolean("pressureVisible");
-                        this.rainVisible = rootObj.getBoolean("rainVisible");
-                        this.windspeedVisible = rootObj.getBoolean("windspeedVisible");
-                        this.bgColor = rootObj.getInt("bgColor");
-                        this.textColor = rootObj.getInt("textColor");
-                    } catch (JSONException ignored) {
-                        ignored.printStackTrace();
-                    }
-                    if (source != null) {
-                        if (source.getUrl().endsWith(".txt") || source.getUrl().endsWith(".xml") || source.getUrl().endsWith(".csv")) {
-                            DataElaborator dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                        } else {
-                            String originalSource = source.getUrl();
-                            source.setUrl(originalSource + "/realtime.txt");
-                            DataElaborator dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                            source.setUrl(originalSource + "/realtime.xml");
-                            dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                            source.setUrl(originalSource + "/daily.csv");
-                            dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                        }
-                    }
-                }
+            // Periodic refreshes come from RefreshScheduler, this only paints widgets that have
+            // nothing on screen yet, such as those restored after a reboot
+            RefreshScheduler.schedule(context);
+            int[] unrendered = RenderTracker.getUnrendered(widgetId);
+            if (unrendered.length > 0) {
+                refresh(context, unrendered);
+                RefreshPipeline.holdBroadcast(this);
             }
+        } else if (intent.getAction().equals(UPDATE_FILTER)) {
+            RenderTracker.invalidate(widgetId);
+            refresh(context, widgetId);
+            RefreshPipeline.holdBroadcast(this);
         } else if (intent.getAction().equals(AppWidgetManager.ACTION_APPWIDGET_DISABLED)) {
-            Intent updateIntent = new Intent(context, Widget.class);
-            updateIntent.setAction(UPDATE_FILTER);
-            PendingIntent pendingUpdateIntent = PendingIntent.getBroadcast(context, 0, updateIntent, 0);
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            alarmManager.cancel(pendingUpdateIntent);
+            RefreshScheduler.cancelIfUnused(context);
             SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
             SharedPreferences.Editor editor = sharedPrefs.edit();
+            WidgetConfigStore.remove(context, widgetId);
             for (int i = 0; i < widgetNum; i++) {
-                editor.remove("widget_" + widgetId[i]);
+                EndpointResolver.forget(editor, widgetId[i]);
                 Log.d("PWSWatcher", "Deleted Widget #" + widgetId[i]);
             }
             editor.apply();
         } else if (intent.getAction().equals(AppWidgetManager.ACTION_APPWIDGET_OPTIONS_CHANGED)) {
             super.onReceive(context, intent);
         } else if (intent.getAction().equals(onRefreshClick)) {
-            SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-            for (int i = 0; i < widgetNum; i++) {
-                String sourceJSON = sharedPrefs.getString("widget_" + widgetId[i], null);
-                Widget.prefWindUnit = sharedPrefs.getString("flutter.prefWindUnit", "km/h");
-                Widget.prefRainUnit= sharedPrefs.getString("flutter.prefRainUnit", "mm");
-                Widget.prefPressUnit= sharedPrefs.getString("flutter.prefPressUnit", "mb");
-                Widget.prefTempUnit= sharedPrefs.getString("flutter.prefTempUnit", "°C");
-                Widget.prefDewUnit= sharedPrefs.getString("flutter.prefDewUnit", "°C");
-                if (sourceJSON != null) {
-                    Source source = null;
-                    try {
-                        JSONObject rootObj = new JSONObject(sourceJSON);
-                        JSONObject sourceObj = rootObj.getJSONObject("source");
-                        source = new Source(sourceObj.getInt("id"), sourceObj.getString("name"), sourceObj.getString("url"));
-                        this.fontSizeMultiplier = BigDecimal.valueOf(rootObj.getDouble("fontSizeMultiplier")).floatValue();
-                        this.humidityVisible = rootObj.getBoolean("humidityVisible");
-                        this.pressureVisible = rootObj.getBoolean("pressureVisible");
-                        this.rainVisible = rootObj.getBoolean("rainVisible");
-                        this.windspeedVisible = rootObj.getBoolean("windspeedVisible");
-                        this.bgColor = rootObj.getInt("bgColor");
-                        this.textColor = rootObj.getInt("textColor");
-                    } catch (JSONException ignored) {
-                        ignored.printStackTrace();
-                    }
-                    if (source != null) {
-                        if (source.getUrl().endsWith(".txt") || source.getUrl().endsWith(".xml") || source.getUrl().endsWith(".csv")) {
-                            DataElaborator dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                    this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                        } else {
-                            String originalSource = source.getUrl();
-                            source.setUrl(originalSource + "/realtime.txt");
-                            DataElaborator dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                    this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                            source.setUrl(originalSource + "/realtime.xml");
-                            dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                    this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                            source.setUrl(originalSource + "/daily.csv");
-                            dataElaborator = new DataElaborator(context, source, widgetId[i], this.fontSizeMultiplier,
-                                    this.humidityVisible, this.pressureVisible, this.rainVisible, this.windspeedVisible, this.bgColor, this.textColor);
-                            dataElaborator.execute();
-                        }
-                    }
-                }
+            refresh(context, widgetId);
+            RefreshPipeline.holdBroadcast(this);
+        }
+    }
+
+    static void refresh(Context context, int[] widgetId) {
+        int widgetNum = widgetId.length;
+        UnitPreferences units = UnitPreferences.get(context);
+        for (int i = 0; i < widgetNum; i++) {
+            WidgetConfig config = WidgetConfigStore.get(context, widgetId[i]);
+            if (config != null) {
+                Source source = config.getSource();
+                RefreshScheduler.recordDispatch(widgetId[i], source.getUrl());
+                DataElaborator dataElaborator = new DataElaborator(context, source, widgetId[i], config.getFontSizeMultiplier(),
+                    config.isHumidityVisible(), config.isPressureVisible(), config.isRainVisible(), config.isWindspeedVisible(),
+                    config.getBgColor(), config.getTextColor(), units);
+                RefreshPipeline.submit(dataElaborator);
             }
         }
     }
 
-    public static class DataElaborator extends AsyncTask<String, Void, String> {
-        private Context context;
+    public static class DataElaborator extends RefreshJob {
         private Source source;
-        private int id;
         private float fontSizeMultiplier;
         private boolean humidityVisible = true;
         private boolean pressureVisible = true;
@@ -199,10 +92,10 @@ public class Widget extends AppWidgetProvider {
         private int textColor;
 
         public DataElaborator(Context context, Source source, int id, float fontSizeMultiplier, boolean humidityVisible,
-            boolean pressureVisible, boolean rainVisible, boolean windspeedVisible, int bgColor, int textColor) {
-            this.context = context;
+            boolean pressureVisible, boolean rainVisible, boolean windspeedVisible, int bgColor, int textColor,
+            UnitPreferences units) {
+            super(context, id, source.getUrl(), units);
             this.source = source;
-            this.id = id;
             this.fontSizeMultiplier = fontSizeMultiplier;
             this.humidityVisible = humidityVisible;
             this.pressureVisible = pressureVisible;
@@ -213,261 +106,59 @@ public class Widget extends AppWidgetProvider {
         }
 
         @Override
-        protected String doInBackground(String... params) {
-            try {
-                OkHttpClient client = new OkHttpClient.Builder().build();
-                if(!this.source.getUrl().startsWith("http://") && !this.source.getUrl().startsWith("https://")) {
-                    Request request = new Request.Builder()
-                            .url("http://" + this.source.getUrl())
-                            .build();
-                    Call call = client.newCall(request);
-                    Response response = call.execute();
-                    if(response.code() == 200)
-                        return response.body().string();
-                    else {
-                        request = new Request.Builder()
-                                .url("https://" + this.source.getUrl())
-                                .build();
-                        call = client.newCall(request);
-                        response = call.execute();
-                        if(response.code() == 200)
-                            return response.body().string();
-                        else {
-                            return null;
-                        }
-                    }
-                } else {
-                    Request request = new Request.Builder()
-                            .url(this.source.getUrl())
-                            .build();
-                    Call call = client.newCall(request);
-                    Response response = call.execute();
-                    if(response.code() == 200)
-                        return response.body().string();
-                    else
-                        return null;
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
+        protected int getLayoutId() {
+            return R.layout.widget;
         }
 
         @Override
-        protected void onPostExecute(String resp) {
-            if (resp == null)
-                return;
-
-            RemoteViews view = new RemoteViews(context.getPackageName(), R.layout.widget);
-            boolean done = false;
-
-            try {
-                boolean isClientRawTxt = false;
-
-                if (this.source.getUrl().endsWith("clientraw.txt")) {
-                    done = visualizeClientRawTXT(resp, view);
-                    isClientRawTxt = true;
-                } else if (this.source.getUrl().endsWith(".txt")) {
-                    done = visualizeRealtimeTXT(resp, view);
-                } else if (this.source.getUrl().endsWith(".xml")) {
-                    done = visualizeRealtimeXML(resp, view);
-                } else if (this.source.getUrl().endsWith(".csv")) {
-                    done = visualizeDailyCSV(resp, view);
-                }
-
-                setFontSizes(view);
-                setVisibilities(view, isClientRawTxt);
-                setColors(view);
-                setOnClickListeners(view);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-
-            if (done) {
-                AppWidgetManager manager = AppWidgetManager.getInstance(context);
-                manager.updateAppWidget(this.id, view);
-            }
-        }
-
-        private boolean visualizeDailyCSV(String resp, RemoteViews view) {
-            try {
-                String[] lines = resp.split("\r\n");
-                String[] units = lines[2].split(",");
-                String[] values = lines[lines.length - 1].split(",");
-                view.setTextViewText(R.id.tv_location, this.source.getName());
-                view.setTextViewText(R.id.tv_temperature, convertTemperature(Double.parseDouble(values[7]), units[7], Widget.prefTempUnit) + Widget.prefTempUnit);
-                view.setTextViewText(R.id.tv_temperature_left, convertTemperature(Double.parseDouble(values[7]), units[7], Widget.prefTempUnit) + Widget.prefTempUnit);
-                view.setTextViewText(R.id.tv_humidity, values[5] + "%");
-                view.setTextViewText(R.id.tv_pressure, convertPressure(Double.parseDouble(values[8]), units[8], Widget.prefPressUnit) + Widget.prefPressUnit);
-                view.setTextViewText(R.id.tv_rain, convertRain(Double.parseDouble(values[52]), units[52], Widget.prefRainUnit) + Widget.prefRainUnit);
-                view.setTextViewText(R.id.tv_windspeed, convertWindSpeed(Double.parseDouble(values[2]), units[2], Widget.prefWindUnit) + Widget.prefWindUnit);
-                String stringDate = null;
-                try {
-                    String date = lines[0] + " " + values[0];
-                    date = date.trim().replace("/", "-").replace(".", "-").toUpperCase();
-                    SimpleDateFormat format = new SimpleDateFormat("MM-dd-yy hh:mma");
-                    Date newDate = format.parse(date);
-                    stringDate = android.text.format.DateFormat.getDateFormat(context).format(newDate) + " " + android.text.format.DateFormat.getTimeFormat(context).format(newDate).replace(".000", "");
-                } catch (Exception e) {
-                    String date = lines[0] + " " + values[0];
-                    stringDate = date.trim().replace("/", "-").replace(".", "-");
-                }
-                view.setTextViewText(R.id.tv_datetime, stringDate);
-                return true;
-            } catch (Exception ignored) {
-            }
-            return false;
+        protected void decorate(RemoteViews view, Format format) {
+            setFontSizes(view);
+            setVisibilities(view, format == Format.CLIENTRAW_TXT);
+            setColors(view);
+            setOnClickListeners(view);
         }
 
-        private boolean visualizeClientRawTXT(String resp, RemoteViews view) {
+        @Override
+        protected boolean visualize(Observation observation, WidgetViewState view) {
             try {
-                String[] values = resp.split(" ");
-                view.setTextViewText(R.id.tv_location, this.source.getName());
-                view.setTextViewText(R.id.tv_temperature, convertTemperature(Double.parseDouble(values[4]), "°C", Widget.prefTempUnit) + Widget.prefTempUnit);
-                view.setTextViewText(R.id.tv_temperature_left, convertTemperature(Double.parseDouble(values[4]), "°C", Widget.prefTempUnit) + Widget.prefTempUnit);
-                view.setTextViewText(R.id.tv_humidity, values[5] + "%");
-                view.setTextViewText(R.id.tv_pressure, convertPressure(Double.parseDouble(values[6]), "hPa", Widget.prefPressUnit) + Widget.prefPressUnit);
-                view.setTextViewText(R.id.tv_rain, convertRain(Double.parseDouble(values[7]), "mm", Widget.prefRainUnit) + Widget.prefRainUnit);
-                view.setTextViewText(R.id.tv_windspeed, convertWindSpeed(Double.parseDouble(values[2]), "kts", Widget.prefWindUnit) + Widget.prefWindUnit);
-                int currentConditionIcon = Integer.parseInt(values[48]);
-                int[] currentConditionMapping = {R.drawable.sunny, R.drawable.clear_night, R.drawable.cloudy, R.drawable.cloudy, R.drawable.cloudy_night, R.drawable.sunny, R.drawable.fog, R.drawable.fog, R.drawable.heavy_rain, R.drawable.sunny, R.drawable.fog, R.drawable.fog_night, R.drawable.heavy_rain, R.drawable.cloudy_night, R.drawable.rain, R.drawable.heavy_rain, R.drawable.snow, R.drawable.storm, R.drawable.partly_cloudy, R.drawable.partly_cloudy, R.drawable.rain, R.drawable.heavy_rain, R.drawable.heavy_rain, R.drawable.snow, R.drawable.snow, R.drawable.snow, R.drawable.snow_melt, R.drawable.snow, R.drawable.sunny, R.drawable.storm, R.drawable.storm, R.drawable.storm, R.drawable.windy, R.drawable.windy, R.drawable.stopped_raining, R.drawable.rain, R.drawable.sunrise, R.drawable.sunset};
-                int currentConditionAsset = currentConditionMapping[currentConditionIcon];
-                view.setImageViewResource(R.id.iv_weather, currentConditionAsset);
-                String stringDate = null;
-                try {
-                    String date = values[74] + " " + values[29]+ ":" + values[30]+ ":" + values[31];
-                    date = date.trim().replace("/", "-").replace(".", "-");
-                    SimpleDateFormat format = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
-                    Date newDate = format.parse(date);
-                    stringDate = android.text.format.DateFormat.getDateFormat(context).format(newDate) + " " + android.text.format.DateFormat.getTimeFormat(context).format(newDate).replace(".000", "");
-                } catch (Exception e) {
-                    String date = values[74] + " " + values[29]+ ":" + values[30]+ ":" + values[31];
-                    stringDate = date.trim().replace("/", "-").replace(".", "-");
-                }
-                view.setTextViewText(R.id.tv_datetime, stringDate);
+                String location = observation.getLocation();
+                view.setTextViewText(R.id.tv_location, (location != null) ? location : this.source.getName());
+                String temperature, pressure, rain, windspeed;
+                if (observation.isConvertible()) {
+                    temperature = UnitConverter.convert(observation.getTemperature(), observation.getTemperatureUnitCode(), this.units.getTemperatureUnitCode()) + this.units.getTemperatureUnit();
+                    pressure = UnitConverter.convert(observation.getPressure(), observation.getPressureUnitCode(), this.units.getPressureUnitCode()) + this.units.getPressureUnit();
+                    rain = UnitConverter.convert(observation.getRain(), observation.getRainUnitCode(), this.units.getRainUnitCode()) + this.units.getRainUnit();
+                    windspeed = UnitConverter.convert(observation.getWindSpeed(), observation.getWindSpeedUnitCode(), this.units.getWindSpeedUnitCode()) + this.units.getWindSpeedUnit();
+                } else {
+                    String temp = observation.getTemperatureText();
+                    String tempunit = observation.getTemperatureUnit();
+                    temperature = ((temp != null) ? temp : "") + ((tempunit != null) ? (tempunit.contains("°") ? tempunit : "°" + tempunit) : "");
+                    pressure = textOrDash(observation.getPressureText()) + " " + textOrEmpty(observation.getPressureUnit());
+                    rain = textOrDash(observation.getRainText()) + " " + textOrEmpty(observation.getRainUnit());
+                    windspeed = textOrDash(observation.getWindSpeedText()) + " " + textOrEmpty(observation.getWindSpeedUnit());
+                }
+                String hum = observation.getHumidityText();
+                view.setTextViewText(R.id.tv_temperature, temperature);
+                view.setTextViewText(R.id.tv_temperature_left, temperature);
+                view.setTextViewText(R.id.tv_humidity, ((hum != null) ? (hum.contains("%") ? hum : hum + "%") : "-"));
+                view.setTextViewText(R.id.tv_pressure, pressure);
+                view.setTextViewText(R.id.tv_rain, rain);
+                view.setTextViewText(R.id.tv_windspeed, windspeed);
+                if (observation.getConditionCode() >= 0)
+                    view.setImageViewResource(R.id.iv_weather, CONDITION_ICONS[observation.getConditionCode()]);
+                view.setTextViewText(R.id.tv_datetime, DateLabels.format(context, observation));
                 return true;
             } catch (Exception ignored) {
             }
             return false;
         }
 
-        private boolean visualizeRealtimeTXT(String resp, RemoteViews view) {
-            try {
-                String[] values = resp.split(" ");
-                view.setTextViewText(R.id.tv_location, this.source.getName());
-                view.setTextViewText(R.id.tv_temperature, values[2] + (values[14].contains("°") ? "" : "°") + values[14]);
-                view.setTextViewText(R.id.tv_temperature_left, values[2] + (values[14].contains("°") ? "" : "°") + values[14]);
-                view.setTextViewText(R.id.tv_humidity, values[3] + "%");
-                view.setTextViewText(R.id.tv_pressure, values[10] + " " +values[15]);
-                view.setTextViewText(R.id.tv_rain, values[9] + " " + values[16]);
-                view.setTextViewText(R.id.tv_windspeed, values[5] + " " + values[13]);
-                String stringDate = null;
-                try {
-                    String date = values[0] + " " + values[1];
-                    date = date.trim().replace("/", "-").replace(".", "-");
-                    int year = Calendar.getInstance().get(Calendar.YEAR);
-                    date = date.substring(0, 6) +
-                            Integer.toString(year).substring(0, 2) +
-                            date.substring(6);
-                    date = date.substring(6, 10) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2) + " " + date.substring(11);
-                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    Date newDate = format.parse(date);
-                    stringDate = android.text.format.DateFormat.getDateFormat(context).format(newDate) + " " + android.text.format.DateFormat.getTimeFormat(context).format(newDate).replace(".000", "");
-                } catch (Exception e) {
-                    stringDate = values[0].trim() + " " + values[1].trim();
-                }
-                view.setTextViewText(R.id.tv_datetime, stringDate);
-                return true;
-            } catch (Exception ignored) {
-            }
-            return false;
+        private String textOrDash(String text) {
+            return (text != null) ? text : "-";
         }
 
-        private boolean visualizeRealtimeXML(String resp, RemoteViews view) {
-            try {
-                XmlPullParserFactory parserFactory;
-                parserFactory = XmlPullParserFactory.newInstance();
-                XmlPullParser parser = parserFactory.newPullParser();
-                parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-                parser.setInput(new StringReader(resp));
-                int eventType = parser.getEventType();
-                String location = null, date = null, time = null, temp = null, tempunit = null, hum = null,
-                    press = null, pressunit = null, rain = null, rainunit = null, wind = null, windunit = null;
-                String[] attributes = {"misc", "realtime", "today", "yesterday", "record", "units"};
-                while (eventType != XmlPullParser.END_DOCUMENT) {
-                    String eltName = null;
-                    switch (eventType) {
-                        case XmlPullParser.START_TAG:
-                            eltName = parser.getName();
-                            if ("misc".equals(eltName)) {
-                                for (int i = 0; i < parser.getAttributeCount(); i++) {
-                                    if (parser.getAttributeName(i).equals("data") && parser.getAttributeValue(i).equals("station_location")) {
-                                        view.setTextViewText(R.id.tv_location, parser.nextText());
-                                    }
-                                }
-                            }
-                            if ("data".equals(eltName)) {
-                                for (int i = 0; i < parser.getAttributeCount(); i++) {
-                                    if (Arrays.asList(attributes).contains(parser.getAttributeName(i))) {
-                                        if (parser.getAttributeValue(i).equals("temp")) {
-                                            temp = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("tempunit")) {
-                                            tempunit = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("hum")) {
-                                            hum = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("press") || parser.getAttributeValue(i).equals("barometer")) {
-                                            press = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("barunit")) {
-                                            pressunit = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("todaysrain") || parser.getAttributeValue(i).equals("today_rainfall")) {
-                                            rain = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("rainunit")) {
-                                            rainunit = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("windspeed") || parser.getAttributeValue(i).equals("avg_windspeed")) {
-                                            wind = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("windunit")) {
-                                            windunit = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("station_date")) {
-                                            date = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("station_time")) {
-                                            time = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("location")) {
-                                            location = parser.nextText();
-                                        } else if (parser.getAttributeValue(i).equals("refresh_time")) {
-                                            String tmpDatetime = parser.nextText();
-                                            date = tmpDatetime.substring(0, 10);
-                                            time = tmpDatetime.substring(12);
-                                        }
-                                    }
-                                }
-                            }
-                            break;
-                    }
-                    eventType = parser.next();
-                }
-                view.setTextViewText(R.id.tv_location, (location != null) ? location : this.source.getName());
-                view.setTextViewText(R.id.tv_temperature, ((temp != null) ? temp : "") + ((tempunit != null) ? (tempunit.contains("°") ? tempunit : "°" + tempunit) : ""));
-                view.setTextViewText(R.id.tv_temperature_left, ((temp != null) ? temp : "") + ((tempunit != null) ? (tempunit.contains("°") ? tempunit : "°" + tempunit) : ""));
-                view.setTextViewText(R.id.tv_humidity, ((hum != null) ? (hum.contains("%") ? hum : hum + "%") : "-"));
-                view.setTextViewText(R.id.tv_pressure, ((press != null) ? press : "-") + " " + ((pressunit != null) ? pressunit : ""));
-                view.setTextViewText(R.id.tv_rain, ((rain != null) ? rain : "-") + " " + ((rainunit != null) ? rainunit : ""));
-                view.setTextViewText(R.id.tv_windspeed, ((wind != null) ? wind : "-") + " " + ((windunit != null) ? windunit : ""));
-                String stringDate = null;
-                try {
-                    String tmpDatetime = date.trim() + " " + time.trim();
-                    tmpDatetime = tmpDatetime.trim().replace("/", "-").replace(".", "-");
-                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    Date newDate = format.parse(tmpDatetime);
-                    stringDate = android.text.format.DateFormat.getDateFormat(context).format(newDate) + " " + android.text.format.DateFormat.getTimeFormat(context).format(newDate).replace(".000", "");
-                } catch (Exception e) {
-                    stringDate = ((date != null) ? (date.trim() + " ") : "") + ((time != null) ? time.trim() : "");
-                }
-                view.setTextViewText(R.id.tv_datetime, stringDate);
-                return true;
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return false;
+        private String textOrEmpty(String text) {
+            return (text != null) ? text : "";
         }
 
         private void setFontSizes(RemoteViews view) {
@@ -558,187 +249,5 @@ public class Widget extends AppWidgetProvider {
             intent.setAction(action);
             return PendingIntent.getBroadcast(context, 0, intent, 0);
         }
-
-        private double convertWindSpeed(double value, String unit, String preferred) {
-            double kmh = 0.0;
-
-            switch (unit.trim().replaceAll("/", "").toLowerCase()) {
-                case "kts":
-                case "kn": {
-                    kmh = ktsToKmh(value);
-                    break;
-                }
-                case "mph": {
-                    kmh = mphToKmh(value);
-                    break;
-                }
-                case "ms": {
-                    kmh = msToKmh(value);
-                    break;
-                }
-                default: {
-                    kmh = value;
-                    break;
-                }
-            }
-
-            double toReturn = 0.0;
-
-            switch (preferred.trim().replaceAll("/", "").toLowerCase()) {
-                case "kts":
-                case "kn": {
-                    toReturn = roundTo2Decimal(kmhToKts(kmh));
-                    break;
-                }
-                case "mph": {
-                    toReturn = roundTo2Decimal(kmhToMph(kmh));
-                    break;
-                }
-                case "ms": {
-                    toReturn = roundTo2Decimal(kmhToMs(kmh));
-                    break;
-                }
-                default: {
-                    toReturn = roundTo2Decimal(kmh);
-                    break;
-                }
-            }
-
-            return toReturn;
-        }
-
-        private double convertRain(double value, String unit, String preferred) {
-            double toReturn = 0.0;
-
-            if (!unit.trim().replaceAll("/", "").equalsIgnoreCase(preferred.trim().replaceAll("/", ""))) {
-                if (unit.trim().replaceAll("/", "").equalsIgnoreCase("mm")) {
-                    toReturn = roundTo2Decimal(mmToIn(value));
-                } else {
-                    toReturn = roundTo2Decimal(inToMm(value));
-                }
-            } else {
-                toReturn = value;
-            }
-
-            return toReturn;
-        }
-
-        private double convertPressure(double value, String unit, String preferred) {
-            double hPa;
-
-            switch (unit.trim().replaceAll("/", "").toLowerCase()) {
-                case "in":
-                case "inhg": {
-                    hPa = inhgToHPa(value);
-                    break;
-                }
-                case "mb": {
-                    hPa = mbToHPa(value);
-                    break;
-                }
-                default: {
-                    hPa = value;
-                    break;
-                }
-            }
-
-            double toReturn = 0.0;
-
-            switch (preferred.trim().replaceAll("/", "").toLowerCase()) {
-                case "in":
-                case "inhg": {
-                    toReturn = roundTo2Decimal(hPaToInhg(hPa));
-                    break;
-                }
-                case "mb": {
-                    toReturn = roundTo2Decimal(hPaToMb(hPa));
-                    break;
-                }
-                default: {
-                    toReturn = roundTo2Decimal(hPa);
-                    break;
-                }
-            }
-
-            return toReturn;
-        }
-
-        private double convertTemperature(double value, String unit, String preferred) {
-            double toReturn = 0.0;
-            String newUnit = unit.trim().replaceAll("/", "").replaceAll("°", "").toLowerCase();
-            String newPref = preferred.trim().replaceAll("/", "").replaceAll("°", "").toLowerCase();
-
-            if (newUnit.charAt(newUnit.length() - 1) != newPref.charAt(newPref.length() - 1)) {
-                if (newUnit.charAt(newUnit.length() - 1) == 'f') {
-                    toReturn = roundTo2Decimal(fToC(value));
-                } else {
-                    toReturn = roundTo2Decimal(cToF(value));
-                }
-            } else {
-                toReturn = value;
-            }
-
-            return toReturn;
-        }
-
-        double roundTo2Decimal(double value) {
-            return (double) Math.round(value * 100d) / 100d;
-        }
-
-        double ktsToKmh(double kts) {
-            return kts * 1.852;
-        }
-
-        double mphToKmh(double mph) {
-            return mph * 1.60934;
-        }
-
-        double msToKmh(double ms) {
-            return ms * 3.6;
-        }
-
-        double kmhToKts(double kmh) {
-            return kmh / 1.852;
-        }
-
-        double kmhToMph(double kmh) {
-            return kmh / 1.60934;
-        }
-
-        double kmhToMs(double kmh) {
-            return kmh / 3.6;
-        }
-
-        double mmToIn(double mm) {
-            return mm / 25.4;
-        }
-
-        double inToMm(double inc) {
-            return inc * 25.4;
-        }
-
-        double inhgToHPa(double inhg) {
-            return inhg * 33.86389;
-        }
-
-        double mbToHPa(double mb) {
-            return mb;
-        }
-
-        double hPaToInhg(double pa) {
-            return pa / 33.86389;
-        }
-
-        double hPaToMb(double pa) {
-            return pa;
-        }
-
-        double fToC(double f) {
-            return (f - 32) * 5 / 9;
-        }
-
-        double cToF(double c) {
-            return (c * 9 / 5) + 32;
-        }
     }
 }
@@ -0,0 +1,82 @@
+package com.zem.pwswatcher;
+
+import android.graphics.Color;
+
+import com.zem.pwswatcher.model.Source;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Settings chosen in the configuration activities for one widget. The small widget has no
+// visibility switches and leaves them on.
+class WidgetConfig {
+    static final int DEFAULT_BG_COLOR = Color.parseColor("#03A9F4");
+    static final int DEFAULT_TEXT_COLOR = Color.parseColor("#FFFFFF");
+
+    private final Source source;
+    private final float fontSizeMultiplier;
+    private final boolean humidityVisible;
+    private final boolean pressureVisible;
+    private final boolean rainVisible;
+    private final boolean windspeedVisible;
+    private final int bgColor;
+    private final int textColor;
+
+    WidgetConfig(Source source, float fontSizeMultiplier, boolean humidityVisible, boolean pressureVisible,
+                 boolean rainVisible, boolean windspeedVisible, int bgColor, int textColor) {
+        this.source = source;
+        this.fontSizeMultiplier = fontSizeMultiplier;
+        this.humidityVisible = humidityVisible;
+        this.pressureVisible = pressureVisible;
+        this.rainVisible = rainVisible;
+        this.windspeedVisible = windspeedVisible;
+        this.bgColor = bgColor;
+        this.textColor = textColor;
+    }
+
+    Source getSource() {
+        return source;
+    }
+
+    float getFontSizeMultiplier() {
+        return fontSizeMultiplier;
+    }
+
+    boolean isHumidityVisible() {
+        return humidityVisible;
+    }
+
+    boolean isPressureVisible() {
+        return pressureVisible;
+    }
+
+    boolean isRainVisible() {
+        return rainVisible;
+    }
+
+    boolean isWindspeedVisible() {
+        return windspeedVisible;
+    }
+
+    int getBgColor() {
+        return bgColor;
+    }
+
+    int getTextColor() {
+        return textColor;
+    }
+
+    // The "widget_<id>" JSON the configuration activities used to write
+    static WidgetConfig fromJSON(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        JSONObject source = root.getJSONObject("source");
+        return new WidgetConfig(new Source(source.getInt("id"), source.getString("name"), source.getString("url")),
+                (float) root.optDouble("fontSizeMultiplier", 1.0),
+                root.optBoolean("humidityVisible", true),
+                root.optBoolean("pressureVisible", true),
+                root.optBoolean("rainVisible", true),
+                root.optBoolean("windspeedVisible", true),
+                root.optInt("bgColor", DEFAULT_BG_COLOR),
+                root.optInt("textColor", DEFAULT_TEXT_COLOR));
+    }
+}
@@ -0,0 +1,170 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.zem.pwswatcher.model.Source;
+
+import org.json.JSONException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+
+// Widget settings as one binary file of fixed-order records, read once per process and then
+// served from memory. Only the configuration activities and widget removal write to it. The
+// "widget_<id>" JSON strings of earlier versions are moved into it the first time it is loaded.
+class WidgetConfigStore {
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_NAME = "widget_configs.bin";
+    private static final int HUMIDITY_VISIBLE = 1;
+    private static final int PRESSURE_VISIBLE = 1 << 1;
+    private static final int RAIN_VISIBLE = 1 << 2;
+    private static final int WINDSPEED_VISIBLE = 1 << 3;
+
+    private static SparseArray<WidgetConfig> configs;
+
+    private WidgetConfigStore() {
+    }
+
+    static synchronized WidgetConfig get(Context context, int widgetId) {
+        return load(context).get(widgetId);
+    }
+
+    static synchronized void put(Context context, int widgetId, WidgetConfig config) {
+        load(context).put(widgetId, config);
+        save(context);
+    }
+
+    static synchronized void remove(Context context, int[] widgetIds) {
+        SparseArray<WidgetConfig> loaded = load(context);
+        for (int widgetId : widgetIds)
+            loaded.remove(widgetId);
+        save(context);
+    }
+
+    // Drops the in-memory copy so the next call reads the file again
+    static synchronized void unload() {
+        configs = null;
+    }
+
+    private static SparseArray<WidgetConfig> load(Context context) {
+        if (configs != null)
+            return configs;
+        configs = new SparseArray<>();
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (file.exists()) {
+            try {
+                read(file, configs);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        migrate(context);
+        return configs;
+    }
+
+    private static void migrate(Context context) {
+        SharedPreferences sharedPrefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        List<String> migrated = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : sharedPrefs.getAll().entrySet()) {
+            int widgetId = legacyWidgetId(entry.getKey());
+            if (widgetId < 0 || !(entry.getValue() instanceof String))
+                continue;
+            try {
+                if (configs.get(widgetId) == null)
+                    configs.put(widgetId, WidgetConfig.fromJSON((String) entry.getValue()));
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+            migrated.add(entry.getKey());
+        }
+        if (migrated.isEmpty())
+            return;
+        if (!save(context))
+            return;
+        SharedPreferences.Editor editor = sharedPrefs.edit();
+        for (String key : migrated)
+            editor.remove(key);
+        editor.apply();
+        Log.d("PWSWatcher", "Migrated " + migrated.size() + " widget settings");
+    }
+
+    // "widget_12" -> 12; anything else, e.g. "widget_12_endpoint", -> -1
+    private static int legacyWidgetId(String key) {
+        if (!key.startsWith("widget_") || key.length() == "widget_".length())
+            return -1;
+        for (int i = "widget_".length(); i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i)))
+                return -1;
+        }
+        try {
+            return Integer.parseInt(key.substring("widget_".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void read(File file, SparseArray<WidgetConfig> into) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION)
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int widgetId = in.readInt();
+                Source source = new Source(in.readInt(), in.readUTF(), in.readUTF());
+                float fontSizeMultiplier = in.readFloat();
+                int flags = in.readByte();
+                int bgColor = in.readInt();
+                int textColor = in.readInt();
+                into.put(widgetId, new WidgetConfig(source, fontSizeMultiplier, (flags & HUMIDITY_VISIBLE) != 0,
+                        (flags & PRESSURE_VISIBLE) != 0, (flags & RAIN_VISIBLE) != 0, (flags & WINDSPEED_VISIBLE) != 0,
+                        bgColor, textColor));
+            }
+        }
+    }
+
+    private static boolean save(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        File tmp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(configs.size());
+                for (int i = 0; i < configs.size(); i++) {
+                    WidgetConfig config = configs.valueAt(i);
+                    out.writeInt(configs.keyAt(i));
+                    out.writeInt(config.getSource().getId());
+                    out.writeUTF(config.getSource().getName());
+                    out.writeUTF(config.getSource().getUrl());
+                    out.writeFloat(config.getFontSizeMultiplier());
+                    out.writeByte((config.isHumidityVisible() ? HUMIDITY_VISIBLE : 0)
+                            | (config.isPressureVisible() ? PRESSURE_VISIBLE : 0)
+                            | (config.isRainVisible() ? RAIN_VISIBLE : 0)
+                            | (config.isWindspeedVisible() ? WINDSPEED_VISIBLE : 0));
+                    out.writeInt(config.getBgColor());
+                    out.writeInt(config.getTextColor());
+                }
+            }
+            if (!tmp.renameTo(file))
+                throw new IOException("Unable to replace " + file);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+            return false;
+        }
+    }
+}
@@ -37,7 +37,6 @@ import top.defaults.colorpicker.ColorPickerPopup;
 import top.defaults.colorpicker.ColorPickerView;
 
 public class WidgetMediumConfigurationActivity extends Activity {
-    public static final String UPDATE_FILTER = "com.zem.pwswatcher.UPDATE";
     public static final String SHARED_PREFERENCES_NAME = "FlutterSharedPreferences";
     private static final String LIST_IDENTIFIER = "VGhpcyBpcyB0aGUgcHJlZml4IGZvciBhIGxpc3Qu";
     private final String[] fontSizeText = {"extra-small", "small", "medium", "big", "extra-big"};
@@ -86,18 +85,12 @@ public class WidgetMediumConfigurationActivity extends Activity {
         }
 
         final SharedPreferences sharedPref = getApplicationContext().getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-        String widgetSettingsRaw = sharedPref.getString("widget_" + mAppWidgetId, null);
-
-        if(widgetSettingsRaw != null) {
-            try{
-                JSONObject widgetSettings = new JSONObject(widgetSettingsRaw);
-
-                String rawSource = widgetSettings.getString("source");
-                this.selectedSource = Source.fromJSON(rawSource);
-                
-                this.bgColor = widgetSettings.getInt("bgColor");
-                this.textColor = widgetSettings.getInt("textColor");
-            } catch(Exception e) {}
+        final WidgetConfig widgetConfig = WidgetConfigStore.get(getApplicationContext(), mAppWidgetId);
+
+        if(widgetConfig != null) {
+            this.selectedSource = widgetConfig.getSource();
+            this.bgColor = widgetConfig.getBgColor();
+            this.textColor = widgetConfig.getTextColor();
         }
 
         String stringValue = sharedPref.getString("flutter.sources", null);
@@ -142,17 +135,15 @@ public class WidgetMediumConfigurationActivity extends Activity {
             this.cbRain = findViewById(R.id.cb_rain);
             this.cbWindSpeed = findViewById(R.id.cb_windspeed);
             
-            if(widgetSettingsRaw != null) {
+            if(widgetConfig != null) {
                 try{
-                    JSONObject widgetSettings = new JSONObject(widgetSettingsRaw);
-
-                    this.cbHumidity.setChecked(widgetSettings.getBoolean("humidityVisible"));
-                    this.cbPressure.setChecked(widgetSettings.getBoolean("pressureVisible"));
-                    this.cbRain.setChecked(widgetSettings.getBoolean("rainVisible"));
-                    this.cbWindSpeed.setChecked(widgetSettings.getBoolean("windspeedVisible"));
+                    this.cbHumidity.setChecked(widgetConfig.isHumidityVisible());
+                    this.cbPressure.setChecked(widgetConfig.isPressureVisible());
+                    this.cbRain.setChecked(widgetConfig.isRainVisible());
+                    this.cbWindSpeed.setChecked(widgetConfig.isWindspeedVisible());
 
-                    double multiplierValue = widgetSettings.getDouble("fontSizeMultiplier");
-                    double[] doubleMultipliers = {0.35, 0.75, 1, 1.25, 1.65};
+                    double multiplierValue = widgetConfig.getFontSizeMultiplier();
+                    double[] doubleMultipliers = {0.35f, 0.75f, 1, 1.25f, 1.65f};
 
                     float fontSize = 16f;
                     int progress = findIndex(doubleMultipliers, multiplierValue);
@@ -243,24 +234,13 @@ public class WidgetMediumConfigurationActivity extends Activity {
     }
 
     private void completeActivity() {
-        SharedPreferences sharedPrefs = getApplicationContext().getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-        try {
-            JSONObject root = new JSONObject();
-            root.put("source", this.selectedSource.toJSONObject());
-            root.put("fontSizeMultiplier", this.multiplier[this.sbFontSize.getProgress()]);
-            root.put("humidityVisible", this.cbHumidity.isChecked());
-            root.put("pressureVisible", this.cbPressure.isChecked());
-            root.put("rainVisible", this.cbRain.isChecked());
-            root.put("windspeedVisible", this.cbWindSpeed.isChecked());
-            root.put("bgColor", this.bgColor);
-            root.put("textColor", this.textColor);
-            sharedPrefs.edit().putString("widget_" + mAppWidgetId, root.toString()).apply();
-            Log.d("PWSWatcher", "Added Widget #" + mAppWidgetId);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+        WidgetConfig config = new WidgetConfig(this.selectedSource, this.multiplier[this.sbFontSize.getProgress()],
+                this.cbHumidity.isChecked(), this.cbPressure.isChecked(),
+                this.cbRain.isChecked(), this.cbWindSpeed.isChecked(), this.bgColor, this.textColor);
+        WidgetConfigStore.put(getApplicationContext(), mAppWidgetId, config);
+        Log.d("PWSWatcher", "Added Widget #" + mAppWidgetId);
         Intent updateIntent = new Intent(getApplicationContext(), WidgetMedium.class);
-        updateIntent.setAction(UPDATE_FILTER);
+        updateIntent.setAction(WidgetMedium.UPDATE_FILTER);
         int[] ids = widgetManager.getAppWidgetIds(new ComponentName(getApplicationContext(), WidgetMedium.class));
         updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids);
         getApplicationContext().sendBroadcast(updateIntent);
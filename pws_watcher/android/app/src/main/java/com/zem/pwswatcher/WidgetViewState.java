@@ -0,0 +1,50 @@
+package com.zem.pwswatcher;
+
+import android.text.TextUtils;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.widget.RemoteViews;
+
+// The data-driven part of a widget: the texts and icons set from an observation. Kept for the
+// last render of every widget so the next one can send only the views that changed.
+class WidgetViewState {
+    private final SparseArray<CharSequence> texts = new SparseArray<>();
+    private final SparseIntArray images = new SparseIntArray();
+
+    void setTextViewText(int viewId, CharSequence text) {
+        this.texts.put(viewId, text);
+    }
+
+    void setImageViewResource(int viewId, int resId) {
+        this.images.put(viewId, resId);
+    }
+
+    void applyTo(RemoteViews view) {
+        for (int i = 0; i < this.texts.size(); i++)
+            view.setTextViewText(this.texts.keyAt(i), this.texts.valueAt(i));
+        for (int i = 0; i < this.images.size(); i++)
+            view.setImageViewResource(this.images.keyAt(i), this.images.valueAt(i));
+    }
+
+    // Adds to view only the actions that differ from previous and returns how many there were
+    int applyChangesTo(RemoteViews view, WidgetViewState previous) {
+        int changes = 0;
+        for (int i = 0; i < this.texts.size(); i++) {
+            int viewId = this.texts.keyAt(i);
+            CharSequence text = this.texts.valueAt(i);
+            if (previous.texts.indexOfKey(viewId) < 0 || !TextUtils.equals(text, previous.texts.get(viewId))) {
+                view.setTextViewText(viewId, text);
+                changes++;
+            }
+        }
+        for (int i = 0; i < this.images.size(); i++) {
+            int viewId = this.images.keyAt(i);
+            int resId = this.images.valueAt(i);
+            if (previous.images.get(viewId, 0) != resId) {
+                view.setImageViewResource(viewId, resId);
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
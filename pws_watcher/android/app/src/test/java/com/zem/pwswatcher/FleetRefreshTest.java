@@ -0,0 +1,210 @@
+package com.zem.pwswatcher;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.zem.pwswatcher.loadtest.SimulatedStation;
+import com.zem.pwswatcher.loadtest.StationSimulator;
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.network.FetchCoordinator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Runs a fleet of Widget, WidgetMedium and WidgetSmall instances through RefreshScheduler ticks:
+// the real providers, RefreshPipeline, RefreshJob and RenderTracker against StationSimulator from
+// :loadtest, with the AppWidgetManager calls counted by a shadow instead of being applied. Prints
+// station fetches, widget updates, wall time and heap per tick. SourceCadence plans on the wall
+// clock, which the simulated clock cannot move, so every source is made due before each tick; how
+// the cadence spaces fetches out is SourceCadenceTest's business.
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = FleetRefreshTest.CountingAppWidgetManager.class)
+public class FleetRefreshTest {
+    private static final int WIDGETS = 24;
+    private static final int STATIONS = 8;
+    private static final int TICKS = 8;
+    private static final long TICK_MS = 15 * 60000;
+    private static final long[] CADENCES_MS = {60000, 5 * 60000, 10 * 60000};
+    private static final long IDLE_TIMEOUT_MS = 30000;
+
+    @Implements(AppWidgetManager.class)
+    public static class CountingAppWidgetManager extends ShadowAppWidgetManager {
+        int updates = 0;
+        int partialUpdates = 0;
+
+        @Implementation
+        protected void updateAppWidget(int appWidgetId, RemoteViews views) {
+            this.updates++;
+        }
+
+        @Implementation
+        protected void updateAppWidget(int[] appWidgetIds, RemoteViews views) {
+            this.updates += appWidgetIds.length;
+        }
+
+        @Implementation
+        protected void partiallyUpdateAppWidget(int appWidgetId, RemoteViews views) {
+            this.partialUpdates++;
+        }
+
+        @Implementation
+        protected void partiallyUpdateAppWidget(int[] appWidgetIds, RemoteViews views) {
+            this.partialUpdates += appWidgetIds.length;
+        }
+    }
+
+    private Context context;
+    private CountingAppWidgetManager manager;
+    private StationSimulator simulator;
+
+    @Before
+    public void setUp() throws IOException {
+        this.context = ApplicationProvider.getApplicationContext();
+        this.manager = Shadow.extract(AppWidgetManager.getInstance(this.context));
+        this.simulator = new StationSimulator(System.currentTimeMillis(), 42);
+        Format[] formats = Format.values();
+        List<SimulatedStation> fleet = new ArrayList<>();
+        for (int i = 0; i < STATIONS; i++) {
+            long cadence = CADENCES_MS[(i / formats.length) % CADENCES_MS.length];
+            SimulatedStation station = new SimulatedStation(i + 1, formats[i % formats.length], cadence, i * 7000, 10, 0);
+            this.simulator.add(station);
+            fleet.add(station);
+        }
+        this.simulator.start();
+
+        WidgetConfigStore.unload();
+        Class<?>[] providers = {Widget.class, WidgetMedium.class, WidgetSmall.class};
+        int[] widgetIds = new int[WIDGETS];
+        for (int i = 0; i < WIDGETS; i++) {
+            int widgetId = 1000 + i;
+            widgetIds[i] = widgetId;
+            this.manager.bindAppWidgetId(widgetId, new ComponentName(this.context, providers[i % providers.length]));
+            String url = this.simulator.getUrl(fleet.get(i % fleet.size()));
+            WidgetConfigStore.put(this.context, widgetId, new WidgetConfig(new Source(i + 1, "Station", url), 1.0f,
+                    true, true, true, true, WidgetConfig.DEFAULT_BG_COLOR, WidgetConfig.DEFAULT_TEXT_COLOR));
+        }
+        RenderTracker.invalidate(widgetIds);
+    }
+
+    @After
+    public void tearDown() {
+        this.simulator.stop();
+        StationNetwork.unload();
+    }
+
+    // Every source due now, as after a full refresh interval without a fetch. Ticks follow each
+    // other at once here, so a fresh coordinator keeps the share window from spanning them.
+    private void makeAllDue() {
+        this.context.getSharedPreferences(SourceCadence.PREFERENCES_NAME, Context.MODE_PRIVATE).edit().clear().commit();
+        SourceCadence.unload();
+        StationNetwork.unload();
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        AtomicBoolean idle = new AtomicBoolean(false);
+        RefreshPipeline.whenIdle(() -> idle.set(true));
+        long giveUp = System.currentTimeMillis() + IDLE_TIMEOUT_MS;
+        while (!idle.get()) {
+            assertTrue("Refresh pipeline still busy", System.currentTimeMillis() < giveUp);
+            ShadowLooper.idleMainLooper();
+            Thread.sleep(5);
+        }
+    }
+
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    // Runs one tick and returns {fetches, full updates, partial updates}
+    private long[] tick(int tick) throws InterruptedException {
+        makeAllDue();
+        FetchCoordinator coordinator = StationNetwork.getCoordinator(this.context);
+        long fetches = coordinator.getNetworkFetchCount();
+        long requests = this.simulator.requests.get();
+        long notModified = this.simulator.notModified.get();
+        int updates = this.manager.updates;
+        int partialUpdates = this.manager.partialUpdates;
+        long start = System.nanoTime();
+        RefreshScheduler.dispatchTick(this.context, RefreshScheduler.BACKEND_JOB);
+        awaitIdle();
+        long wallNanos = System.nanoTime() - start;
+        long[] counts = {coordinator.getNetworkFetchCount() - fetches, this.manager.updates - updates,
+                this.manager.partialUpdates - partialUpdates};
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(tick + "\t" + RefreshScheduler.getLastTickWidgetCount() + "\t" + counts[0] + "\t"
+                + (this.simulator.requests.get() - requests) + "\t" + (this.simulator.notModified.get() - notModified) + "\t" + counts[1] + "\t" + counts[2] + "\t"
+                + wallNanos / 1000000 + "\t" + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+        return counts;
+    }
+
+    @Test
+    public void refreshesTheFleet() throws InterruptedException {
+        resetPeakHeap();
+        long start = System.nanoTime();
+        long fetches = 0;
+        System.out.println("tick\twidgets\tfetches\trequests\t304\tupdates\tpartial_updates\twall_ms\theap_mb");
+
+        // The first tick paints every widget in full
+        long[] first = tick(1);
+        fetches += first[0];
+        assertEquals(STATIONS, first[0]);
+        assertEquals(WIDGETS, first[1]);
+        assertEquals(0, first[2]);
+
+        // Nothing was published since: every fetch is a 304 and no widget is touched
+        long[] unchanged = tick(2);
+        fetches += unchanged[0];
+        assertEquals(STATIONS, unchanged[0]);
+        assertEquals(0, unchanged[1] + unchanged[2]);
+
+        for (int tick = 3; tick <= TICKS; tick++) {
+            this.simulator.advance(TICK_MS);
+            long[] counts = tick(tick);
+            fetches += counts[0];
+            // One fetch per station however many widgets show it, and at most one update per widget
+            assertEquals(STATIONS, counts[0]);
+            assertTrue(counts[1] + counts[2] <= WIDGETS);
+        }
+        System.out.println(WIDGETS + " widgets (" + WIDGETS / 3 + " of each size) on " + STATIONS
+                + " stations, " + TICKS + " ticks: fetches per tick " + String.format("%.1f", (double) fetches / TICKS)
+                + ", updates " + this.manager.updates + ", partial updates " + this.manager.partialUpdates
+                + ", wall ms " + (System.nanoTime() - start) / 1000000 + ", peak heap MB " + getPeakHeap() / (1024 * 1024));
+    }
+}
@@ -0,0 +1,167 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RefreshPipelineTest {
+    private Context context;
+    private UnitPreferences units;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<BlockingJob> submitted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        this.context = ApplicationProvider.getApplicationContext();
+        this.units = UnitPreferences.get(this.context);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        this.release.countDown();
+        for (BlockingJob job : this.submitted)
+            job.awaitDone();
+        ShadowLooper.idleMainLooper();
+    }
+
+    // Holds its pool thread until the test releases it and counts how many jobs per host run at once
+    private class BlockingJob extends RefreshJob {
+        private final AtomicInteger running;
+        private final AtomicInteger peak;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicBoolean ran = new AtomicBoolean(false);
+
+        BlockingJob(int id, String url, AtomicInteger running, AtomicInteger peak) {
+            super(RefreshPipelineTest.this.context, id, url, RefreshPipelineTest.this.units);
+            this.running = running;
+            this.peak = peak;
+        }
+
+        @Override
+        public void run() {
+            this.ran.set(true);
+            int now = this.running.incrementAndGet();
+            this.peak.accumulateAndGet(now, Math::max);
+            this.started.countDown();
+            try {
+                RefreshPipelineTest.this.release.await();
+            } catch (InterruptedException e) {
+                // Cancelled
+            } finally {
+                this.running.decrementAndGet();
+                RefreshPipeline.deliver(this, () -> {
+                }, true);
+                this.done.countDown();
+            }
+        }
+
+        boolean awaitStarted() throws InterruptedException {
+            return this.started.await(5, TimeUnit.SECONDS);
+        }
+
+        void awaitDone() throws InterruptedException {
+            if (this.ran.get())
+                this.done.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        protected int getLayoutId() {
+            return 0;
+        }
+
+        @Override
+        protected boolean visualize(Observation observation, WidgetViewState view) {
+            return false;
+        }
+
+        @Override
+        protected void decorate(RemoteViews view, Format format) {
+        }
+    }
+
+    private BlockingJob submit(int id, String url, AtomicInteger running, AtomicInteger peak) {
+        BlockingJob job = new BlockingJob(id, url, running, peak);
+        this.submitted.add(job);
+        RefreshPipeline.submit(job);
+        return job;
+    }
+
+    @Test
+    public void atMostTwoJobsPerHostRunAtOnce() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<BlockingJob> jobs = new ArrayList<>();
+        for (int id = 101; id <= 105; id++)
+            jobs.add(submit(id, "http://a.example/realtime.txt", running, peak));
+        BlockingJob other = submit(106, "http://b.example/realtime.txt", new AtomicInteger(), new AtomicInteger());
+        assertTrue(jobs.get(0).awaitStarted());
+        assertTrue(jobs.get(1).awaitStarted());
+        assertTrue(other.awaitStarted());
+        assertFalse(jobs.get(2).started.await(200, TimeUnit.MILLISECONDS));
+        this.release.countDown();
+        for (BlockingJob job : jobs)
+            assertTrue(job.awaitStarted());
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    public void supersededJobsWaitingForAThreadGiveTheirSlotBack() throws InterruptedException {
+        // Fill the pool so the next jobs sit in the executor queue
+        List<BlockingJob> busy = new ArrayList<>();
+        for (int id = 201; id <= 204; id++)
+            busy.add(submit(id, "http://busy" + (id % 2) + ".example/realtime.txt", new AtomicInteger(), new AtomicInteger()));
+        for (BlockingJob job : busy)
+            assertTrue(job.awaitStarted());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        submit(211, "http://c.example/realtime.txt", running, peak);
+        submit(212, "http://c.example/realtime.txt", running, peak);
+        BlockingJob first = submit(211, "http://c.example/realtime.txt", running, peak);
+        BlockingJob second = submit(212, "http://c.example/realtime.txt", running, peak);
+        this.release.countDown();
+        assertTrue(first.awaitStarted());
+        assertTrue(second.awaitStarted());
+    }
+
+    @Test
+    public void overdueJobsAreCancelledAndTheTickGoesIdle() throws InterruptedException {
+        long expired = RefreshPipeline.getExpiredCount();
+        RefreshPipeline.beginTick();
+        BlockingJob job = submit(301, "http://d.example/realtime.txt", new AtomicInteger(), new AtomicInteger());
+        assertTrue(job.awaitStarted());
+        AtomicBoolean idle = new AtomicBoolean(false);
+        RefreshPipeline.whenIdle(() -> idle.set(true));
+        ShadowLooper.idleMainLooper(44, TimeUnit.SECONDS);
+        assertFalse(job.isCancelled());
+        assertFalse(idle.get());
+        ShadowLooper.idleMainLooper(2, TimeUnit.SECONDS);
+        assertTrue(job.isCancelled());
+        assertTrue(RefreshPipeline.isExpired(job));
+        assertTrue(idle.get());
+        assertEquals(expired + 1, RefreshPipeline.getExpiredCount());
+    }
+}
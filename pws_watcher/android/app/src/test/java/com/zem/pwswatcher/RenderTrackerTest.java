@@ -0,0 +1,98 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RenderTrackerTest {
+    private static final int WIDGET = 7;
+    private static final String URL = "station.example/realtime.txt";
+    private static final long OBSERVED_AT = 1602858902000L;
+
+    private UnitPreferences units;
+
+    @Before
+    public void setUp() {
+        RenderTracker.invalidate(new int[]{WIDGET});
+        this.units = newUnits();
+    }
+
+    private static UnitPreferences newUnits() {
+        Context context = ApplicationProvider.getApplicationContext();
+        return new UnitPreferences(context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE));
+    }
+
+    private void render(long observedAt) {
+        RenderTracker.markFullRender(WIDGET, URL, Format.REALTIME_TXT, new WidgetViewState(), observedAt, this.units);
+    }
+
+    @Test
+    public void currentOnlyForThePaintedUrlAndUnits() {
+        assertFalse(RenderTracker.isCurrent(WIDGET, URL, this.units));
+        render(OBSERVED_AT);
+        assertTrue(RenderTracker.isCurrent(WIDGET, URL, this.units));
+        assertFalse(RenderTracker.isCurrent(WIDGET, "station.example/clientraw.txt", this.units));
+        assertFalse(RenderTracker.isCurrent(WIDGET, URL, newUnits()));
+        RenderTracker.invalidate(new int[]{WIDGET});
+        assertFalse(RenderTracker.isCurrent(WIDGET, URL, this.units));
+    }
+
+    @Test
+    public void staleUntilTheObservationTimeAdvances() {
+        render(OBSERVED_AT);
+        assertTrue(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT, this.units));
+        assertTrue(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT - 1000, this.units));
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT + 1000, this.units));
+    }
+
+    @Test
+    public void partialRenderMovesThePaintedTime() {
+        render(OBSERVED_AT);
+        RenderTracker.markPartialRender(WIDGET, URL, new WidgetViewState(), 1, OBSERVED_AT + 60000, this.units);
+        assertTrue(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT + 30000, this.units));
+    }
+
+    @Test
+    public void unknownTimesNeverSkip() {
+        render(OBSERVED_AT);
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, TimestampNormalizer.UNKNOWN, this.units));
+        render(TimestampNormalizer.UNKNOWN);
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT, this.units));
+    }
+
+    @Test
+    public void otherUnitsUrlOrFormatRepaint() {
+        render(OBSERVED_AT);
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT, newUnits()));
+        assertFalse(RenderTracker.isStale(WIDGET, "station.example/clientraw.txt", Format.REALTIME_TXT, OBSERVED_AT,
+                this.units));
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.CLIENTRAW_TXT, OBSERVED_AT, this.units));
+    }
+
+    @Test
+    public void hourlyFullUpdateRepaints() {
+        render(OBSERVED_AT);
+        // Robolectric's clock moves on at once instead of blocking
+        SystemClock.sleep(61 * 60000);
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT, this.units));
+    }
+
+    @Test
+    public void neverRenderedIsNotStale() {
+        assertFalse(RenderTracker.isStale(WIDGET, URL, Format.REALTIME_TXT, OBSERVED_AT, this.units));
+    }
+}
@@ -0,0 +1,142 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.zem.pwswatcher.network.Payload;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class SourceCadenceTest {
+    private static final String URL = "station.example/realtime.txt";
+    private static final long USER_INTERVAL = 10 * 60000;
+    private static final long OFFSET = 5000;
+    private static final long GRACE = 30000;
+    // The cadence reads the wall clock itself, so times are only compared to within this margin
+    private static final double SLACK = 1000;
+
+    private Context context;
+    private long now;
+
+    @Before
+    public void setUp() {
+        this.context = ApplicationProvider.getApplicationContext();
+        SourceCadence.unload();
+        this.now = System.currentTimeMillis();
+    }
+
+    private SharedPreferences prefs() {
+        return this.context.getSharedPreferences(SourceCadence.PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    private void store(String encoded) {
+        prefs().edit().putString(URL, encoded).commit();
+        SourceCadence.unload();
+    }
+
+    // A station whose reading at observedAt was last seen at confirmedAt
+    private void store(long observedAt, long interval, long lastFetchAt, int failures, long confirmedAt) {
+        store(observedAt + ";" + OFFSET + ";" + interval + ";" + observedAt + ";" + lastFetchAt + ";" + failures + ";"
+                + confirmedAt);
+    }
+
+    private void fetched(long observedAt) {
+        SourceCadence.onFetched(this.context, URL, new Payload(URL, "body", false, false), observedAt);
+    }
+
+    private long nextDue() {
+        return SourceCadence.getNextDue(this.context, URL, USER_INTERVAL);
+    }
+
+    @Test
+    public void neverFetchedIsDueNow() {
+        assertEquals(0, nextDue());
+    }
+
+    @Test
+    public void consecutiveReadingsGiveTheInterval() {
+        store(this.now - 305000, 0, this.now - 10000, 0, this.now - 10000);
+        fetched(this.now - 5000);
+        assertEquals(this.now + 300000 + GRACE, nextDue(), SLACK);
+    }
+
+    @Test
+    public void readingsWithAPossibleMissedPublishAreIgnored() {
+        store(this.now - 305000, 0, this.now - 200000, 0, this.now - 200000);
+        fetched(this.now - 5000);
+        assertEquals(this.now + USER_INTERVAL, nextDue(), SLACK);
+    }
+
+    @Test
+    public void fetchesOfTheSameReadingConfirmIt() {
+        store(this.now - 305000, 0, this.now - 200000, 0, this.now - 200000);
+        fetched(this.now - 305000);
+        fetched(this.now - 5000);
+        assertEquals(this.now + 300000 + GRACE, nextDue(), SLACK);
+    }
+
+    @Test
+    public void notModifiedConfirmsTheReadingWithoutItsTime() {
+        store(this.now - 305000, 0, this.now - 200000, 0, this.now - 200000);
+        SourceCadence.onFetched(this.context, URL, new Payload(URL, "body", true, false), TimestampNormalizer.UNKNOWN);
+        fetched(this.now - 5000);
+        assertEquals(this.now + 300000 + GRACE, nextDue(), SLACK);
+    }
+
+    @Test
+    public void gapsBelowTheMinimumIntervalAreIgnored() {
+        store(this.now - 35000, 0, this.now - 1000, 0, this.now - 1000);
+        fetched(this.now - 5000);
+        assertEquals(this.now + USER_INTERVAL, nextDue(), SLACK);
+    }
+
+    @Test
+    public void intervalMovesAQuarterTowardEachSample() {
+        store(this.now - 305000, 240000, this.now - 10000, 0, this.now - 10000);
+        fetched(this.now - 5000);
+        assertEquals(this.now + 255000 + GRACE, nextDue(), SLACK);
+    }
+
+    @Test
+    public void stateIsReadBackFromThePreferences() {
+        store(this.now - 305000, 0, this.now - 10000, 0, this.now - 10000);
+        fetched(this.now - 5000);
+        long due = nextDue();
+        SourceCadence.unload();
+        assertEquals(due, nextDue());
+    }
+
+    @Test
+    public void malformedStateStartsOver() {
+        store("1;2;3");
+        assertEquals(0, nextDue());
+        store("1;2;3;4;5;6");
+        assertEquals(0, nextDue());
+        store("1;2;3;4;" + this.now + ";x;7");
+        assertEquals(0, nextDue());
+    }
+
+    @Test
+    public void failingStationsBackOff() {
+        store(this.now - 305000, 0, this.now - 120000, 1, this.now - 120000);
+        SourceCadence.onFetched(this.context, URL, null, 0);
+        assertEquals(this.now + 2 * USER_INTERVAL, nextDue(), SLACK);
+    }
+
+    @Test
+    public void repeatedReportsOfOneFetchFailOnce() {
+        store(this.now - 305000, 0, this.now - 120000, 0, this.now - 120000);
+        SourceCadence.onFetched(this.context, URL, null, 0);
+        SourceCadence.onFetched(this.context, URL, null, 0);
+        assertEquals(this.now + USER_INTERVAL, nextDue(), SLACK);
+    }
+}
@@ -0,0 +1,95 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Color;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.zem.pwswatcher.model.Source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static com.zem.pwswatcher.WidgetConfigurationActivity.SHARED_PREFERENCES_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class WidgetConfigStoreTest {
+    private static final String LEGACY = "{\"source\":{\"id\":3,\"name\":\"Lyon\",\"url\":\"station.example/realtime.txt\"},"
+            + "\"fontSizeMultiplier\":0.75,\"rainVisible\":false,\"bgColor\":-16777216}";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        this.context = ApplicationProvider.getApplicationContext();
+        WidgetConfigStore.unload();
+    }
+
+    private SharedPreferences prefs() {
+        return this.context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static WidgetConfig config(String url) {
+        return new WidgetConfig(new Source(1, "Station", url), 1.0f, true, true, true, true,
+                WidgetConfig.DEFAULT_BG_COLOR, WidgetConfig.DEFAULT_TEXT_COLOR);
+    }
+
+    @Test
+    public void migratesLegacyJson() {
+        prefs().edit().putString("widget_12", LEGACY).putString("widget_12_endpoint", "x").commit();
+        WidgetConfig config = WidgetConfigStore.get(this.context, 12);
+        assertEquals(3, config.getSource().getId());
+        assertEquals("station.example/realtime.txt", config.getSource().getUrl());
+        assertEquals(0.75f, config.getFontSizeMultiplier(), 0.0f);
+        assertTrue(config.isHumidityVisible());
+        assertFalse(config.isRainVisible());
+        assertEquals(Color.BLACK, config.getBgColor());
+        assertEquals(WidgetConfig.DEFAULT_TEXT_COLOR, config.getTextColor());
+        assertFalse(prefs().contains("widget_12"));
+        assertTrue(prefs().contains("widget_12_endpoint"));
+    }
+
+    @Test
+    public void migratedSettingsAreReadBackFromTheFile() {
+        prefs().edit().putString("widget_12", LEGACY).commit();
+        WidgetConfigStore.get(this.context, 12);
+        WidgetConfigStore.unload();
+        WidgetConfig config = WidgetConfigStore.get(this.context, 12);
+        assertEquals("station.example/realtime.txt", config.getSource().getUrl());
+        assertEquals(0.75f, config.getFontSizeMultiplier(), 0.0f);
+        assertFalse(config.isRainVisible());
+    }
+
+    @Test
+    public void storedSettingsWinOverLegacyJson() {
+        WidgetConfigStore.put(this.context, 12, config("stored.example/realtime.txt"));
+        WidgetConfigStore.unload();
+        prefs().edit().putString("widget_12", LEGACY).commit();
+        assertEquals("stored.example/realtime.txt", WidgetConfigStore.get(this.context, 12).getSource().getUrl());
+        assertFalse(prefs().contains("widget_12"));
+    }
+
+    @Test
+    public void garbledLegacyJsonIsDropped() {
+        prefs().edit().putString("widget_7", "{\"source\":").commit();
+        assertNull(WidgetConfigStore.get(this.context, 7));
+        assertFalse(prefs().contains("widget_7"));
+    }
+
+    @Test
+    public void removedWidgetsStayRemoved() {
+        WidgetConfigStore.put(this.context, 1, config("a.example/realtime.txt"));
+        WidgetConfigStore.put(this.context, 2, config("b.example/realtime.txt"));
+        WidgetConfigStore.remove(this.context, new int[]{1});
+        WidgetConfigStore.unload();
+        assertNull(WidgetConfigStore.get(this.context, 1));
+        assertEquals("b.example/realtime.txt", WidgetConfigStore.get(this.context, 2).getSource().getUrl());
+    }
+}
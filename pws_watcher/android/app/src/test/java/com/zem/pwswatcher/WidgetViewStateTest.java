@@ -0,0 +1,60 @@
+package com.zem.pwswatcher;
+
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class WidgetViewStateTest {
+    private static final int TEMPERATURE = 1;
+    private static final int HUMIDITY = 2;
+    private static final int ICON = 3;
+
+    private static WidgetViewState state(String temperature, String humidity, int icon) {
+        WidgetViewState state = new WidgetViewState();
+        state.setTextViewText(TEMPERATURE, temperature);
+        state.setTextViewText(HUMIDITY, humidity);
+        state.setImageViewResource(ICON, icon);
+        return state;
+    }
+
+    private static RemoteViews views() {
+        Context context = ApplicationProvider.getApplicationContext();
+        return new RemoteViews(context.getPackageName(), 0);
+    }
+
+    @Test
+    public void sameStateChangesNothing() {
+        assertEquals(0, state("17.4°C", "63%", 10).applyChangesTo(views(), state("17.4°C", "63%", 10)));
+    }
+
+    @Test
+    public void onlyChangedViewsAreSent() {
+        WidgetViewState previous = state("17.4°C", "63%", 10);
+        assertEquals(1, state("17.5°C", "63%", 10).applyChangesTo(views(), previous));
+        assertEquals(1, state("17.4°C", "63%", 11).applyChangesTo(views(), previous));
+        assertEquals(3, state("17.5°C", "64%", 11).applyChangesTo(views(), previous));
+    }
+
+    @Test
+    public void viewsMissingFromThePreviousStateAreSent() {
+        WidgetViewState previous = new WidgetViewState();
+        previous.setTextViewText(TEMPERATURE, "17.4°C");
+        assertEquals(2, state("17.4°C", "", 10).applyChangesTo(views(), previous));
+    }
+
+    @Test
+    public void equalTextsOfAnotherTypeAreUnchanged() {
+        WidgetViewState previous = state("17.4°C", "63%", 10);
+        WidgetViewState next = state("17.4°C", "63%", 10);
+        next.setTextViewText(TEMPERATURE, new StringBuilder("17.4°C"));
+        assertEquals(0, next.applyChangesTo(views(), previous));
+    }
+}
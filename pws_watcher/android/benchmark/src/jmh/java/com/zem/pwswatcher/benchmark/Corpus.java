@@ -0,0 +1,33 @@
+package com.zem.pwswatcher.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Station payloads under src/jmh/resources/corpus, one directory per station setup. The file keeps
+// the name the station publishes, so Format.fromUrl() picks the parser as the widgets do.
+final class Corpus {
+    static final String CUMULUS_METRIC = "cumulus-metric/realtime.txt";
+    static final String CUMULUS_IMPERIAL = "cumulus-imperial/realtime.txt";
+    static final String WEATHER_DISPLAY = "weather-display/clientraw.txt";
+    static final String XML_REALTIME = "xml-realtime/realtime.xml";
+    static final String XML_FULL_EXPORT = "xml-full-export/realtime.xml";
+    static final String CSV_MORNING = "csv-morning/daily.csv";
+    static final String CSV_FULL_DAY = "csv-full-day/daily.csv";
+
+    private Corpus() {
+    }
+
+    static String load(String name) throws IOException {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name)) {
+            if (in == null)
+                throw new IOException("Missing corpus payload " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0)
+                out.write(buffer, 0, n);
+            return new String(out.toByteArray(), "UTF-8");
+        }
+    }
+}
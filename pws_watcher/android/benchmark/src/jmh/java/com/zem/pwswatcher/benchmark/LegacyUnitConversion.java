@@ -0,0 +1,190 @@
+package com.zem.pwswatcher.benchmark;
+
+// The string based convert* functions each DataElaborator carried before UnitConverter, kept
+// verbatim as the baseline for UnitConversionBenchmark.
+final class LegacyUnitConversion {
+    private LegacyUnitConversion() {
+    }
+
+    static double convertWindSpeed(double value, String unit, String preferred) {
+        double kmh = 0.0;
+
+        switch (unit.trim().replaceAll("/", "").toLowerCase()) {
+            case "kts":
+            case "kn": {
+                kmh = ktsToKmh(value);
+                break;
+            }
+            case "mph": {
+                kmh = mphToKmh(value);
+                break;
+            }
+            case "ms": {
+                kmh = msToKmh(value);
+                break;
+            }
+            default: {
+                kmh = value;
+                break;
+            }
+        }
+
+        double toReturn = 0.0;
+
+        switch (preferred.trim().replaceAll("/", "").toLowerCase()) {
+            case "kts":
+            case "kn": {
+                toReturn = roundTo2Decimal(kmhToKts(kmh));
+                break;
+            }
+            case "mph": {
+                toReturn = roundTo2Decimal(kmhToMph(kmh));
+                break;
+            }
+            case "ms": {
+                toReturn = roundTo2Decimal(kmhToMs(kmh));
+                break;
+            }
+            default: {
+                toReturn = roundTo2Decimal(kmh);
+                break;
+            }
+        }
+
+        return toReturn;
+    }
+
+    static double convertRain(double value, String unit, String preferred) {
+        double toReturn = 0.0;
+
+        if (!unit.trim().replaceAll("/", "").equalsIgnoreCase(preferred.trim().replaceAll("/", ""))) {
+            if (unit.trim().replaceAll("/", "").equalsIgnoreCase("mm")) {
+                toReturn = roundTo2Decimal(mmToIn(value));
+            } else {
+                toReturn = roundTo2Decimal(inToMm(value));
+            }
+        } else {
+            toReturn = value;
+        }
+
+        return toReturn;
+    }
+
+    static double convertPressure(double value, String unit, String preferred) {
+        double hPa;
+
+        switch (unit.trim().replaceAll("/", "").toLowerCase()) {
+            case "in":
+            case "inhg": {
+                hPa = inhgToHPa(value);
+                break;
+            }
+            case "mb": {
+                hPa = mbToHPa(value);
+                break;
+            }
+            default: {
+                hPa = value;
+                break;
+            }
+        }
+
+        double toReturn = 0.0;
+
+        switch (preferred.trim().replaceAll("/", "").toLowerCase()) {
+            case "in":
+            case "inhg": {
+                toReturn = roundTo2Decimal(hPaToInhg(hPa));
+                break;
+            }
+            case "mb": {
+                toReturn = roundTo2Decimal(hPaToMb(hPa));
+                break;
+            }
+            default: {
+                toReturn = roundTo2Decimal(hPa);
+                break;
+            }
+        }
+
+        return toReturn;
+    }
+
+    static double convertTemperature(double value, String unit, String preferred) {
+        double toReturn = 0.0;
+        String newUnit = unit.trim().replaceAll("/", "").replaceAll("°", "").toLowerCase();
+        String newPref = preferred.trim().replaceAll("/", "").replaceAll("°", "").toLowerCase();
+
+        if (newUnit.charAt(newUnit.length() - 1) != newPref.charAt(newPref.length() - 1)) {
+            if (newUnit.charAt(newUnit.length() - 1) == 'f') {
+                toReturn = roundTo2Decimal(fToC(value));
+            } else {
+                toReturn = roundTo2Decimal(cToF(value));
+            }
+        } else {
+            toReturn = value;
+        }
+
+        return toReturn;
+    }
+
+    static double roundTo2Decimal(double value) {
+        return (double) Math.round(value * 100d) / 100d;
+    }
+
+    static double ktsToKmh(double kts) {
+        return kts * 1.852;
+    }
+
+    static double mphToKmh(double mph) {
+        return mph * 1.60934;
+    }
+
+    static double msToKmh(double ms) {
+        return ms * 3.6;
+    }
+
+    static double kmhToKts(double kmh) {
+        return kmh / 1.852;
+    }
+
+    static double kmhToMph(double kmh) {
+        return kmh / 1.60934;
+    }
+
+    static double kmhToMs(double kmh) {
+        return kmh / 3.6;
+    }
+
+    static double mmToIn(double mm) {
+        return mm / 25.4;
+    }
+
+    static double inToMm(double inc) {
+        return inc * 25.4;
+    }
+
+    static double inhgToHPa(double inhg) {
+        return inhg * 33.86389;
+    }
+
+    static double mbToHPa(double mb) {
+        return mb;
+    }
+
+    static double hPaToInhg(double pa) {
+        return pa / 33.86389;
+    }
+
+    static double hPaToMb(double pa) {
+        return pa;
+    }
+
+    static double fToC(double f) {
+        return (f - 32) * 5 / 9;
+    }
+
+    static double cToF(double c) {
+        return (c * 9 / 5) + 32;
+    }
+}
@@ -0,0 +1,45 @@
+package com.zem.pwswatcher.benchmark;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.parser.CsvTail;
+import com.zem.pwswatcher.parser.ObservationParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+// One payload to Observation, the way RefreshJob.prepare() does it for every refresh
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({Corpus.CUMULUS_METRIC, Corpus.CUMULUS_IMPERIAL, Corpus.WEATHER_DISPLAY, Corpus.XML_REALTIME,
+            Corpus.XML_FULL_EXPORT, Corpus.CSV_MORNING, Corpus.CSV_FULL_DAY})
+    public String payload;
+
+    private String body;
+    private Format format;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.body = Corpus.load(this.payload);
+        this.format = Format.fromUrl(this.payload);
+    }
+
+    @Benchmark
+    public Observation parse() throws IOException {
+        return ObservationParser.parse(this.format, new StringReader(this.body));
+    }
+
+    // What FetchCoordinator stores for daily.csv when the server ignores Range requests
+    @Benchmark
+    public String condenseCsv() throws IOException {
+        if (this.format != Format.DAILY_CSV)
+            return null;
+        return CsvTail.condense(new StringReader(this.body));
+    }
+}
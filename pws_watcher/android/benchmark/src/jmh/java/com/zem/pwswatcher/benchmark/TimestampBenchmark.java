@@ -0,0 +1,41 @@
+package com.zem.pwswatcher.benchmark;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.parser.ObservationParser;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+// Station date and time to epoch millis, one payload per date layout
+@State(Scope.Benchmark)
+public class TimestampBenchmark {
+    @Param({Corpus.CUMULUS_METRIC, Corpus.WEATHER_DISPLAY, Corpus.XML_REALTIME, Corpus.CSV_FULL_DAY})
+    public String payload;
+
+    private Observation observation;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.observation = ObservationParser.parse(Format.fromUrl(this.payload), new StringReader(Corpus.load(this.payload)));
+        if (TimestampNormalizer.toEpochMillis(this.observation) == TimestampNormalizer.UNKNOWN)
+            throw new IllegalStateException("Unreadable timestamp in " + this.payload);
+    }
+
+    @Benchmark
+    public long toEpochMillis() {
+        return TimestampNormalizer.toEpochMillis(this.observation);
+    }
+
+    @Benchmark
+    public String rawText() {
+        return TimestampNormalizer.rawText(this.observation);
+    }
+}
@@ -0,0 +1,78 @@
+package com.zem.pwswatcher.benchmark;
+
+import com.zem.pwswatcher.units.Quantity;
+import com.zem.pwswatcher.units.Unit;
+import com.zem.pwswatcher.units.UnitConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The four conversions a large widget does per render, an imperial station shown in metric units:
+// UnitConverter on resolved Unit values against the string based code it replaced.
+@State(Scope.Benchmark)
+public class UnitConversionBenchmark {
+    private double temperature = 58.6;
+    private double pressure = 29.94;
+    private double rain = 0.12;
+    private double windSpeed = 4.3;
+    private String temperatureUnit = "°F";
+    private String pressureUnit = "in";
+    private String rainUnit = "in";
+    private String windSpeedUnit = "mph";
+    private String preferredTemperatureUnit = "°C";
+    private String preferredPressureUnit = "hPa";
+    private String preferredRainUnit = "mm";
+    private String preferredWindSpeedUnit = "km/h";
+
+    private Unit temperatureCode;
+    private Unit pressureCode;
+    private Unit rainCode;
+    private Unit windSpeedCode;
+    private Unit preferredTemperatureCode;
+    private Unit preferredPressureCode;
+    private Unit preferredRainCode;
+    private Unit preferredWindSpeedCode;
+
+    @Setup
+    public void setUp() {
+        this.temperatureCode = Unit.of(this.temperatureUnit, Quantity.TEMPERATURE);
+        this.pressureCode = Unit.of(this.pressureUnit, Quantity.PRESSURE);
+        this.rainCode = Unit.of(this.rainUnit, Quantity.RAIN);
+        this.windSpeedCode = Unit.of(this.windSpeedUnit, Quantity.WIND_SPEED);
+        this.preferredTemperatureCode = Unit.of(this.preferredTemperatureUnit, Quantity.TEMPERATURE);
+        this.preferredPressureCode = Unit.of(this.preferredPressureUnit, Quantity.PRESSURE);
+        this.preferredRainCode = Unit.of(this.preferredRainUnit, Quantity.RAIN);
+        this.preferredWindSpeedCode = Unit.of(this.preferredWindSpeedUnit, Quantity.WIND_SPEED);
+    }
+
+    @Benchmark
+    public void converter(Blackhole blackhole) {
+        blackhole.consume(UnitConverter.convert(this.temperature, this.temperatureCode, this.preferredTemperatureCode));
+        blackhole.consume(UnitConverter.convert(this.pressure, this.pressureCode, this.preferredPressureCode));
+        blackhole.consume(UnitConverter.convert(this.rain, this.rainCode, this.preferredRainCode));
+        blackhole.consume(UnitConverter.convert(this.windSpeed, this.windSpeedCode, this.preferredWindSpeedCode));
+    }
+
+    // Includes resolving the unit text, which the widgets pay once per parsed observation
+    @Benchmark
+    public void converterFromText(Blackhole blackhole) {
+        blackhole.consume(UnitConverter.convert(this.temperature, Unit.of(this.temperatureUnit, Quantity.TEMPERATURE),
+                this.preferredTemperatureCode));
+        blackhole.consume(UnitConverter.convert(this.pressure, Unit.of(this.pressureUnit, Quantity.PRESSURE),
+                this.preferredPressureCode));
+        blackhole.consume(UnitConverter.convert(this.rain, Unit.of(this.rainUnit, Quantity.RAIN), this.preferredRainCode));
+        blackhole.consume(UnitConverter.convert(this.windSpeed, Unit.of(this.windSpeedUnit, Quantity.WIND_SPEED),
+                this.preferredWindSpeedCode));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        blackhole.consume(LegacyUnitConversion.convertTemperature(this.temperature, this.temperatureUnit, this.preferredTemperatureUnit));
+        blackhole.consume(LegacyUnitConversion.convertPressure(this.pressure, this.pressureUnit, this.preferredPressureUnit));
+        blackhole.consume(LegacyUnitConversion.convertRain(this.rain, this.rainUnit, this.preferredRainUnit));
+        blackhole.consume(LegacyUnitConversion.convertWindSpeed(this.windSpeed, this.windSpeedUnit, this.preferredWindSpeedUnit));
+    }
+}
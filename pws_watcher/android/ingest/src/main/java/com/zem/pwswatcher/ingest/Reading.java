@@ -0,0 +1,78 @@
+package com.zem.pwswatcher.ingest;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.model.Source;
+
+// Outcome of StationReader.read(): where the data came from, what it parsed to and how long the
+// fetch and the parse took.
+public class Reading {
+    public enum Status {
+        OK,
+        NO_TIMESTAMP,
+        UNPARSED,
+        UNREACHABLE,
+        // The URL could not even be turned into a request
+        INVALID
+    }
+
+    private final Source source;
+    private final Status status;
+    private final String endpoint;
+    private final Format format;
+    private final Observation observation;
+    private final long fetchNanos;
+    private final long parseNanos;
+    private final int length;
+    private final String detail;
+
+    Reading(Source source, Status status, String endpoint, Format format, Observation observation, long fetchNanos,
+            long parseNanos, int length, String detail) {
+        this.source = source;
+        this.status = status;
+        this.endpoint = endpoint;
+        this.format = format;
+        this.observation = observation;
+        this.fetchNanos = fetchNanos;
+        this.parseNanos = parseNanos;
+        this.length = length;
+        this.detail = detail;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    // Characters of the payload as stored, daily.csv already condensed to its header and last record
+    public int getLength() {
+        return length;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,67 @@
+package com.zem.pwswatcher.ingest;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.FormatProbe;
+import com.zem.pwswatcher.network.Payload;
+import com.zem.pwswatcher.parser.ObservationParser;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+// Fetch, format detection and parsing of one Source without any Android dependency: what a widget
+// refresh does before it gets to RemoteViews. Bare hosts are probed on every read, there is no
+// endpoint store here.
+public class StationReader {
+    private final FetchCoordinator coordinator;
+
+    public StationReader(FetchCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    public Reading read(Source source) {
+        String url = source.getUrl();
+        long start = System.nanoTime();
+        Payload payload;
+        try {
+            if (FormatProbe.hasKnownFormat(url))
+                payload = this.coordinator.fetch(url);
+            else
+                payload = new FormatProbe(this.coordinator).probe(url);
+        } catch (IOException e) {
+            return new Reading(source, Reading.Status.UNREACHABLE, null, null, null, System.nanoTime() - start, 0, 0,
+                    e.toString());
+        } catch (RuntimeException e) {
+            // OkHttp rejects malformed URLs such as "foo bar/realtime.txt" with an IllegalArgumentException
+            return new Reading(source, Reading.Status.INVALID, null, null, null, System.nanoTime() - start, 0, 0,
+                    e.toString());
+        }
+        long fetchNanos = System.nanoTime() - start;
+        if (payload == null || payload.getBody() == null)
+            return new Reading(source, Reading.Status.UNREACHABLE, null, null, null, fetchNanos, 0, 0, "No station file");
+        String endpoint = payload.getUrl();
+        Format format = Format.fromUrl(endpoint);
+        String body = payload.getBody();
+        start = System.nanoTime();
+        Observation observation;
+        try {
+            observation = ObservationParser.parse(format, new StringReader(body));
+        } catch (IOException | RuntimeException e) {
+            return new Reading(source, Reading.Status.UNPARSED, endpoint, format, null, fetchNanos,
+                    System.nanoTime() - start, body.length(), e.toString());
+        }
+        long observedAt = observation != null ? TimestampNormalizer.toEpochMillis(observation) : TimestampNormalizer.UNKNOWN;
+        long parseNanos = System.nanoTime() - start;
+        if (observation == null)
+            return new Reading(source, Reading.Status.UNPARSED, endpoint, format, null, fetchNanos, parseNanos,
+                    body.length(), "Not a " + format + " payload");
+        if (observedAt == TimestampNormalizer.UNKNOWN)
+            return new Reading(source, Reading.Status.NO_TIMESTAMP, endpoint, format, observation, fetchNanos, parseNanos,
+                    body.length(), TimestampNormalizer.rawText(observation));
+        return new Reading(source, Reading.Status.OK, endpoint, format, observation, fetchNanos, parseNanos,
+                body.length(), null);
+    }
+}
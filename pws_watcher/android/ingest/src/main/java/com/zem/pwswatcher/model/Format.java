@@ -0,0 +1,20 @@
+package com.zem.pwswatcher.model;
+
+public enum Format {
+    REALTIME_TXT,
+    CLIENTRAW_TXT,
+    REALTIME_XML,
+    DAILY_CSV;
+
+    public static Format fromUrl(String url) {
+        if (url.endsWith("clientraw.txt"))
+            return CLIENTRAW_TXT;
+        if (url.endsWith(".txt"))
+            return REALTIME_TXT;
+        if (url.endsWith(".xml"))
+            return REALTIME_XML;
+        if (url.endsWith(".csv"))
+            return DAILY_CSV;
+        return null;
+    }
+}
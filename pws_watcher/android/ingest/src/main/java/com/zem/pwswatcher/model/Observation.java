@@ -0,0 +1,200 @@
+package com.zem.pwswatcher.model;
+
+import com.zem.pwswatcher.units.Quantity;
+import com.zem.pwswatcher.units.Unit;
+
+// One station reading. Numeric values (NaN when absent) are filled for formats whose units are
+// known, so they can be converted to the user's preferred units (unit text is resolved to a
+// Unit code as it is set); the other formats keep the text exactly as the station published it.
+public class Observation {
+    private final Format format;
+    private String location;
+    private double temperature = Double.NaN;
+    private String temperatureText;
+    private String temperatureUnit;
+    private Unit temperatureUnitCode = Unit.of(null, Quantity.TEMPERATURE);
+    private String humidityText;
+    private double pressure = Double.NaN;
+    private String pressureText;
+    private String pressureUnit;
+    private Unit pressureUnitCode = Unit.of(null, Quantity.PRESSURE);
+    private double rain = Double.NaN;
+    private String rainText;
+    private String rainUnit;
+    private Unit rainUnitCode = Unit.of(null, Quantity.RAIN);
+    private double windSpeed = Double.NaN;
+    private String windSpeedText;
+    private String windSpeedUnit;
+    private Unit windSpeedUnitCode = Unit.of(null, Quantity.WIND_SPEED);
+    private int conditionCode = -1;
+    private String date;
+    private String time;
+
+    public Observation(Format format) {
+        this.format = format;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean isConvertible() {
+        return format == Format.CLIENTRAW_TXT || format == Format.DAILY_CSV;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    public String getTemperatureText() {
+        return temperatureText;
+    }
+
+    public void setTemperatureText(String temperatureText) {
+        this.temperatureText = temperatureText;
+    }
+
+    public String getTemperatureUnit() {
+        return temperatureUnit;
+    }
+
+    public void setTemperatureUnit(String temperatureUnit) {
+        this.temperatureUnit = temperatureUnit;
+        this.temperatureUnitCode = Unit.of(temperatureUnit, Quantity.TEMPERATURE);
+    }
+
+    public Unit getTemperatureUnitCode() {
+        return temperatureUnitCode;
+    }
+
+    public String getHumidityText() {
+        return humidityText;
+    }
+
+    public void setHumidityText(String humidityText) {
+        this.humidityText = humidityText;
+    }
+
+    public double getPressure() {
+        return pressure;
+    }
+
+    public void setPressure(double pressure) {
+        this.pressure = pressure;
+    }
+
+    public String getPressureText() {
+        return pressureText;
+    }
+
+    public void setPressureText(String pressureText) {
+        this.pressureText = pressureText;
+    }
+
+    public String getPressureUnit() {
+        return pressureUnit;
+    }
+
+    public void setPressureUnit(String pressureUnit) {
+        this.pressureUnit = pressureUnit;
+        this.pressureUnitCode = Unit.of(pressureUnit, Quantity.PRESSURE);
+    }
+
+    public Unit getPressureUnitCode() {
+        return pressureUnitCode;
+    }
+
+    public double getRain() {
+        return rain;
+    }
+
+    public void setRain(double rain) {
+        this.rain = rain;
+    }
+
+    public String getRainText() {
+        return rainText;
+    }
+
+    public void setRainText(String rainText) {
+        this.rainText = rainText;
+    }
+
+    public String getRainUnit() {
+        return rainUnit;
+    }
+
+    public void setRainUnit(String rainUnit) {
+        this.rainUnit = rainUnit;
+        this.rainUnitCode = Unit.of(rainUnit, Quantity.RAIN);
+    }
+
+    public Unit getRainUnitCode() {
+        return rainUnitCode;
+    }
+
+    public double getWindSpeed() {
+        return windSpeed;
+    }
+
+    public void setWindSpeed(double windSpeed) {
+        this.windSpeed = windSpeed;
+    }
+
+    public String getWindSpeedText() {
+        return windSpeedText;
+    }
+
+    public void setWindSpeedText(String windSpeedText) {
+        this.windSpeedText = windSpeedText;
+    }
+
+    public String getWindSpeedUnit() {
+        return windSpeedUnit;
+    }
+
+    public void setWindSpeedUnit(String windSpeedUnit) {
+        this.windSpeedUnit = windSpeedUnit;
+        this.windSpeedUnitCode = Unit.of(windSpeedUnit, Quantity.WIND_SPEED);
+    }
+
+    public Unit getWindSpeedUnitCode() {
+        return windSpeedUnitCode;
+    }
+
+    public int getConditionCode() {
+        return conditionCode;
+    }
+
+    public void setConditionCode(int conditionCode) {
+        this.conditionCode = conditionCode;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public void setTime(String time) {
+        this.time = time;
+    }
+}
@@ -0,0 +1,36 @@
+package com.zem.pwswatcher.network;
+
+// Last 200 response of one station URL with the validators needed to revalidate it.
+public class CachedPayload {
+    final String url;
+    final String resolvedUrl;
+    final String etag;
+    final String lastModified;
+    final String body;
+    final long storedAt;
+
+    CachedPayload(String url, String resolvedUrl, String etag, String lastModified, String body, long storedAt) {
+        this.url = url;
+        this.resolvedUrl = resolvedUrl;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.body = body;
+        this.storedAt = storedAt;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+}
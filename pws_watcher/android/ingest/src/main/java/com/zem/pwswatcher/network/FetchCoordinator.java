@@ -0,0 +1,314 @@
+package com.zem.pwswatcher.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.parser.CsvTail;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Single-flight downloads keyed by station URL: concurrent callers for the same URL share
+// one network request. A finished body stays shareable for a short window so that widgets
+// refreshed one after another within the same tick still cost one download. A download cut short
+// by interrupting its caller says nothing about the station, so the callers waiting on it start
+// a new one instead of failing with it.
+public class FetchCoordinator {
+    private static final long SHARE_WINDOW_MS = 10000;
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+
+    private final OkHttpClient client;
+    private final SchemeStore schemeStore;
+    private final PayloadCache cache;
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong networkFetches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong schemeFallbacks = new AtomicLong();
+    private final AtomicLong conditionalRequests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong rangedCsvReads = new AtomicLong();
+    private final AtomicLong fullCsvReads = new AtomicLong();
+
+    public FetchCoordinator(OkHttpClient client, SchemeStore schemeStore, PayloadCache cache) {
+        this.client = client;
+        this.schemeStore = schemeStore;
+        this.cache = cache;
+    }
+
+    public Payload fetch(String url) throws IOException {
+        this.requests.incrementAndGet();
+        while (true) {
+            Flight flight;
+            boolean leader = false;
+            synchronized (this.flights) {
+                long now = System.currentTimeMillis();
+                pruneExpired(now);
+                flight = this.flights.get(url);
+                if (flight == null) {
+                    flight = new Flight();
+                    this.flights.put(url, flight);
+                    leader = true;
+                }
+            }
+            if (leader)
+                return lead(url, flight);
+            this.coalesced.incrementAndGet();
+            if (flight.await())
+                return flight.payload;
+        }
+    }
+
+    private Payload lead(String url, Flight flight) throws IOException {
+        this.networkFetches.incrementAndGet();
+        Payload payload = null;
+        IOException error = null;
+        try {
+            payload = download(url);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            boolean interrupted = payload == null
+                    && (error instanceof InterruptedIOException || Thread.currentThread().isInterrupted());
+            synchronized (this.flights) {
+                if (payload == null)
+                    this.flights.remove(url);
+                flight.complete(payload, error, interrupted, System.currentTimeMillis());
+            }
+        }
+        if (error != null)
+            throw error;
+        return payload;
+    }
+
+    public Payload getCached(String url) {
+        CachedPayload entry = this.cache.get(url);
+        return entry != null ? new Payload(url, entry.body, false, false) : null;
+    }
+
+    public long getRequestCount() {
+        return this.requests.get();
+    }
+
+    public long getNetworkFetchCount() {
+        return this.networkFetches.get();
+    }
+
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    public long getSchemeFallbackCount() {
+        return this.schemeFallbacks.get();
+    }
+
+    public long getConditionalRequestCount() {
+        return this.conditionalRequests.get();
+    }
+
+    public long getNotModifiedCount() {
+        return this.notModified.get();
+    }
+
+    public double getConditionalHitRate() {
+        long sent = this.conditionalRequests.get();
+        return sent > 0 ? (double) this.notModified.get() / sent : 0.0;
+    }
+
+    public long getRangedCsvReadCount() {
+        return this.rangedCsvReads.get();
+    }
+
+    public long getFullCsvReadCount() {
+        return this.fullCsvReads.get();
+    }
+
+    private void pruneExpired(long now) {
+        Iterator<Flight> iterator = this.flights.values().iterator();
+        while (iterator.hasNext()) {
+            Flight flight = iterator.next();
+            if (flight.completedAt > 0 && now - flight.completedAt > SHARE_WINDOW_MS)
+                iterator.remove();
+        }
+    }
+
+    // Scheme-less URLs remember which scheme answered for their host. Once HTTPS has
+    // worked the host sticks to it and plain HTTP is never tried again.
+    private Payload download(String url) throws IOException {
+        if (url.startsWith("http://") || url.startsWith("https://"))
+            return get(url, url);
+        String authority = authorityOf(url);
+        if (HTTPS.equals(this.schemeStore.getScheme(authority)))
+            return get(url, HTTPS + "://" + url);
+        Payload payload = null;
+        IOException httpError = null;
+        try {
+            payload = get(url, HTTP + "://" + url);
+        } catch (IOException e) {
+            httpError = e;
+        }
+        // OkHttp follows an http to https redirect, so the answer may already have come over HTTPS
+        if (payload != null) {
+            this.schemeStore.putScheme(authority, payload.isSecure() ? HTTPS : HTTP);
+            return payload;
+        }
+        this.schemeFallbacks.incrementAndGet();
+        try {
+            payload = get(url, HTTPS + "://" + url);
+        } catch (IOException e) {
+            throw httpError != null ? httpError : e;
+        }
+        if (payload != null)
+            this.schemeStore.putScheme(authority, HTTPS);
+        return payload;
+    }
+
+    private static String authorityOf(String url) {
+        int slash = url.indexOf('/');
+        return slash < 0 ? url : url.substring(0, slash);
+    }
+
+    private Payload get(String url, String resolvedUrl) throws IOException {
+        CachedPayload known = this.cache.get(url);
+        if (known != null && (!known.hasValidators() || !known.resolvedUrl.equals(resolvedUrl)))
+            known = null;
+        if (Format.fromUrl(url) == Format.DAILY_CSV)
+            return getCsvTail(url, resolvedUrl, known);
+        try (Response response = this.client.newCall(conditional(resolvedUrl, known).build()).execute()) {
+            if (response.code() == 304 && known != null) {
+                this.notModified.incrementAndGet();
+                return new Payload(url, known.body, true, false, isSecure(response));
+            }
+            if (response.code() != 200)
+                return null;
+            return store(url, resolvedUrl, response, response.body().string());
+        }
+    }
+
+    // daily.csv grows by one record every few minutes while the widgets only read its header rows
+    // and last record. Ask for the tail first; a 206 means the server honours ranges and the head
+    // is fetched the same way, a 200 means it does not and the full body is condensed as it streams.
+    private Payload getCsvTail(String url, String resolvedUrl, CachedPayload known) throws IOException {
+        Request tailRequest = conditional(resolvedUrl, known)
+                .header("Range", "bytes=-" + CsvTail.TAIL_BYTES)
+                .build();
+        try (Response response = this.client.newCall(tailRequest).execute()) {
+            if (response.code() == 304 && known != null) {
+                this.notModified.incrementAndGet();
+                return new Payload(url, known.body, true, false, isSecure(response));
+            }
+            if (response.code() == 200) {
+                this.fullCsvReads.incrementAndGet();
+                return store(url, resolvedUrl, response, CsvTail.condense(response.body().charStream()));
+            }
+            if (response.code() != 206)
+                return null;
+            String tail = response.body().string();
+            if (rangeStartsFile(response.header("Content-Range"))) {
+                this.rangedCsvReads.incrementAndGet();
+                return store(url, resolvedUrl, response, CsvTail.condense(tail, tail, true));
+            }
+            String head = getCsvHead(resolvedUrl);
+            if (head == null)
+                return null;
+            this.rangedCsvReads.incrementAndGet();
+            return store(url, resolvedUrl, response, CsvTail.condense(head, tail, false));
+        }
+    }
+
+    private String getCsvHead(String resolvedUrl) throws IOException {
+        Request headRequest = new Request.Builder()
+                .url(resolvedUrl)
+                .header("Range", "bytes=0-" + (CsvTail.HEAD_BYTES - 1))
+                .build();
+        try (Response response = this.client.newCall(headRequest).execute()) {
+            if (response.code() == 206)
+                return response.body().string();
+            if (response.code() == 200)
+                return readPrefix(response.body().charStream(), CsvTail.HEAD_BYTES);
+            return null;
+        }
+    }
+
+    private static String readPrefix(Reader reader, int length) throws IOException {
+        char[] buffer = new char[length];
+        int read = 0;
+        int n;
+        while (read < length && (n = reader.read(buffer, read, length - read)) >= 0)
+            read += n;
+        return new String(buffer, 0, read);
+    }
+
+    // Content-Range: bytes <first>-<last>/<size>
+    private static boolean rangeStartsFile(String contentRange) {
+        if (contentRange == null)
+            return false;
+        int dash = contentRange.indexOf('-');
+        return dash > 0 && contentRange.substring(0, dash).trim().endsWith(" 0");
+    }
+
+    private Request.Builder conditional(String resolvedUrl, CachedPayload known) {
+        Request.Builder builder = new Request.Builder()
+                .url(resolvedUrl);
+        if (known != null) {
+            this.conditionalRequests.incrementAndGet();
+            if (known.etag != null)
+                builder.header("If-None-Match", known.etag);
+            if (known.lastModified != null)
+                builder.header("If-Modified-Since", known.lastModified);
+        }
+        return builder;
+    }
+
+    private Payload store(String url, String resolvedUrl, Response response, String body) {
+        if (body == null)
+            return null;
+        this.cache.put(new CachedPayload(url, resolvedUrl, response.header("ETag"), response.header("Last-Modified"),
+                body, System.currentTimeMillis()));
+        return new Payload(url, body, false, false, isSecure(response));
+    }
+
+    private static boolean isSecure(Response response) {
+        return response.request().url().isHttps();
+    }
+
+    private static class Flight {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Payload payload;
+        private IOException error;
+        private boolean interrupted;
+        private volatile long completedAt = 0;
+
+        void complete(Payload payload, IOException error, boolean interrupted, long completedAt) {
+            this.payload = payload;
+            this.error = error;
+            this.interrupted = interrupted;
+            this.completedAt = completedAt;
+            this.done.countDown();
+        }
+
+        // False when the leader was interrupted and the caller has to download for itself
+        boolean await() throws IOException {
+            try {
+                this.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (this.interrupted)
+                return false;
+            if (this.error != null)
+                throw this.error;
+            return true;
+        }
+    }
+}
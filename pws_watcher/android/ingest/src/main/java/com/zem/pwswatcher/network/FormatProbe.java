@@ -0,0 +1,42 @@
+package com.zem.pwswatcher.network;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.parser.ObservationParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+// Finds which of the well-known station files a bare host actually serves.
+public class FormatProbe {
+    private static final String[] CANDIDATE_PATHS = {"/realtime.txt", "/realtime.xml", "/daily.csv"};
+
+    private final FetchCoordinator coordinator;
+
+    public FormatProbe(FetchCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    public static boolean hasKnownFormat(String url) {
+        return url.endsWith(".txt") || url.endsWith(".xml") || url.endsWith(".csv");
+    }
+
+    public Payload probe(String baseUrl) throws IOException {
+        for (String path : CANDIDATE_PATHS) {
+            String url = baseUrl + path;
+            Payload payload = this.coordinator.fetch(url);
+            if (payload != null && isPlausible(url, payload.getBody()))
+                return new Payload(url, payload.getBody(), payload.isNotModified(), true, payload.isSecure());
+        }
+        return null;
+    }
+
+    // A web server answering 200 with an HTML page for every path must not be mistaken for a
+    // station file, so a candidate only counts when it parses.
+    static boolean isPlausible(String url, String body) {
+        try {
+            return ObservationParser.parse(Format.fromUrl(url), new StringReader(body)) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
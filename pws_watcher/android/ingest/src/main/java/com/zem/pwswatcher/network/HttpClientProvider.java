@@ -0,0 +1,57 @@
+package com.zem.pwswatcher.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+public class HttpClientProvider {
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long DNS_TTL_MINUTES = 10;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 15;
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
+
+    private static final AtomicLong poolHits = new AtomicLong();
+    private static final AtomicLong poolMisses = new AtomicLong();
+    private static volatile OkHttpClient client;
+
+    private HttpClientProvider() {
+    }
+
+    public static OkHttpClient getClient() {
+        OkHttpClient result = client;
+        if (result == null) {
+            synchronized (HttpClientProvider.class) {
+                result = client;
+                if (result == null) {
+                    result = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                            .dns(new CachingDns(TimeUnit.MINUTES.toMillis(DNS_TTL_MINUTES)))
+                            .eventListenerFactory(PoolMetricsListener.factory(poolHits, poolMisses))
+                            .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .build();
+                    client = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public static long getPoolHits() {
+        return poolHits.get();
+    }
+
+    public static long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    public static int getIdleConnectionCount() {
+        OkHttpClient current = client;
+        return current != null ? current.connectionPool().idleConnectionCount() : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.zem.pwswatcher.network;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemorySchemeStore implements SchemeStore {
+    private final ConcurrentHashMap<String, String> schemes = new ConcurrentHashMap<>();
+
+    @Override
+    public String getScheme(String authority) {
+        return schemes.get(authority);
+    }
+
+    @Override
+    public void putScheme(String authority, String scheme) {
+        schemes.put(authority, scheme);
+    }
+}
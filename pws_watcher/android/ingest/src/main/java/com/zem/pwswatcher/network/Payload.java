@@ -0,0 +1,42 @@
+package com.zem.pwswatcher.network;
+
+public class Payload {
+    private final String url;
+    private final String body;
+    private final boolean notModified;
+    private final boolean probed;
+    private final boolean secure;
+
+    public Payload(String url, String body, boolean notModified, boolean probed) {
+        this(url, body, notModified, probed, url.startsWith("https://"));
+    }
+
+    public Payload(String url, String body, boolean notModified, boolean probed, boolean secure) {
+        this.url = url;
+        this.body = body;
+        this.notModified = notModified;
+        this.probed = probed;
+        this.secure = secure;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public boolean isProbed() {
+        return probed;
+    }
+
+    // Whether the body arrived over HTTPS, after any redirects
+    public boolean isSecure() {
+        return secure;
+    }
+}
@@ -0,0 +1,187 @@
+package com.zem.pwswatcher.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Size-bounded, least-recently-used disk cache holding the last raw payload of every station URL.
+// Entries are named after the SHA-1 of their URL, and the file modification time is the recency
+// used for eviction across processes. Entries read in this process are kept in memory as well.
+public class PayloadCache {
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".payload";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedPayload> memory = new HashMap<>();
+    private long totalBytes = 0;
+    private boolean indexed = false;
+
+    public PayloadCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized CachedPayload get(String url) {
+        String name = fileName(url);
+        CachedPayload entry = this.memory.get(name);
+        File file = new File(this.directory, name);
+        if (entry != null && entry.url.equals(url)) {
+            this.sizes.get(name);
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        }
+        ensureIndexed();
+        if (!this.sizes.containsKey(name))
+            return null;
+        try {
+            entry = read(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            remove(name);
+            return null;
+        }
+        if (entry == null || !entry.url.equals(url))
+            return null;
+        this.memory.put(name, entry);
+        file.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    public synchronized void put(CachedPayload entry) {
+        ensureIndexed();
+        String name = fileName(entry.url);
+        this.memory.put(name, entry);
+        File file = new File(this.directory, name);
+        File tmp = new File(this.directory, name + ".tmp");
+        try {
+            write(tmp, entry);
+            if (!tmp.renameTo(file))
+                throw new IOException("Unable to replace " + file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+            return;
+        }
+        Long previous = this.sizes.put(name, file.length());
+        this.totalBytes += file.length() - (previous != null ? previous : 0);
+        evict();
+    }
+
+    public synchronized long getSizeBytes() {
+        ensureIndexed();
+        return this.totalBytes;
+    }
+
+    private void remove(String name) {
+        new File(this.directory, name).delete();
+        this.memory.remove(name);
+        Long size = this.sizes.remove(name);
+        if (size != null)
+            this.totalBytes -= size;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = this.sizes.entrySet().iterator();
+        while (this.totalBytes > this.maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(this.directory, eldest.getKey()).delete();
+            this.memory.remove(eldest.getKey());
+            this.totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void ensureIndexed() {
+        if (this.indexed)
+            return;
+        this.indexed = true;
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+            return;
+        File[] files = this.directory.listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                this.sizes.put(file.getName(), file.length());
+                this.totalBytes += file.length();
+            } else {
+                file.delete();
+            }
+        }
+        evict();
+    }
+
+    private static String fileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CachedPayload read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION)
+                return null;
+            String url = in.readUTF();
+            String resolvedUrl = in.readUTF();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            long storedAt = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > file.length())
+                throw new IOException("Invalid body length " + length + " in " + file);
+            byte[] body = new byte[length];
+            in.readFully(body);
+            return new CachedPayload(url, resolvedUrl, etag, lastModified, new String(body, UTF_8), storedAt);
+        }
+    }
+
+    private static void write(File file, CachedPayload entry) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(entry.url);
+            out.writeUTF(entry.resolvedUrl);
+            out.writeBoolean(entry.etag != null);
+            if (entry.etag != null)
+                out.writeUTF(entry.etag);
+            out.writeBoolean(entry.lastModified != null);
+            if (entry.lastModified != null)
+                out.writeUTF(entry.lastModified);
+            out.writeLong(entry.storedAt);
+            byte[] body = entry.body.getBytes(UTF_8);
+            out.writeInt(body.length);
+            out.write(body);
+        }
+    }
+}
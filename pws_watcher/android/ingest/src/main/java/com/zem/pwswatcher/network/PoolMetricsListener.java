@@ -0,0 +1,44 @@
+package com.zem.pwswatcher.network;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+// A connection acquired without a preceding connectStart came out of the pool.
+class PoolMetricsListener extends EventListener {
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private boolean connecting = false;
+
+    private PoolMetricsListener(AtomicLong hits, AtomicLong misses) {
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    static EventListener.Factory factory(final AtomicLong hits, final AtomicLong misses) {
+        return new EventListener.Factory() {
+            @Override
+            public EventListener create(Call call) {
+                return new PoolMetricsListener(hits, misses);
+            }
+        };
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        this.connecting = true;
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        if (this.connecting)
+            this.misses.incrementAndGet();
+        else
+            this.hits.incrementAndGet();
+        this.connecting = false;
+    }
+}
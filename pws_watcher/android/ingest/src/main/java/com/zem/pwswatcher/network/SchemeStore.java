@@ -0,0 +1,7 @@
+package com.zem.pwswatcher.network;
+
+public interface SchemeStore {
+    String getScheme(String authority);
+
+    void putScheme(String authority, String scheme);
+}
@@ -0,0 +1,40 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Weather Display clientraw.txt: one space separated line of 170+ fields in fixed metric units.
+// The scanner walks it once, front to back, and only the fields below are ever looked at.
+final class ClientRawParser {
+    private ClientRawParser() {
+    }
+
+    static Observation parse(Reader reader) throws IOException {
+        LineReader lines = new LineReader(reader);
+        if (!lines.next())
+            return null;
+        FieldScanner fields = new FieldScanner();
+        fields.reset(lines.chars(), lines.length(), ' ');
+        Observation observation = new Observation(Format.CLIENTRAW_TXT);
+        observation.setWindSpeed(fields.toDouble(2));
+        observation.setWindSpeedUnit("kts");
+        observation.setTemperature(fields.toDouble(4));
+        observation.setTemperatureUnit("°C");
+        observation.setHumidityText(fields.text(5));
+        observation.setPressure(fields.toDouble(6));
+        observation.setPressureUnit("hPa");
+        observation.setRain(fields.toDouble(7));
+        observation.setRainUnit("mm");
+        StringBuilder time = new StringBuilder(8);
+        fields.appendTo(29, time);
+        fields.appendTo(30, time.append(':'));
+        fields.appendTo(31, time.append(':'));
+        observation.setTime(time.toString());
+        observation.setConditionCode(fields.toInt(48));
+        observation.setDate(fields.text(74));
+        return observation;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zem.pwswatcher.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+// Reduces a daily.csv to its three header rows plus the last record, which is all the widgets
+// read from it. Only a fixed window of the file is ever held, however long the day has grown.
+public final class CsvTail {
+    public static final int HEAD_BYTES = 4096;
+    public static final int TAIL_BYTES = 8192;
+    private static final int HEADER_LINES = 3;
+
+    private CsvTail() {
+    }
+
+    // Full download: the header is read line by line, the rest goes through a ring of the last
+    // TAIL_BYTES chars which is scanned backwards for the final record once the stream ends.
+    public static String condense(Reader reader) throws IOException {
+        LineReader lines = new LineReader(reader);
+        StringBuilder out = new StringBuilder();
+        if (!readHeader(lines, out))
+            return null;
+        char[] ring = new char[TAIL_BYTES];
+        int pos = 0;
+        boolean wrapped = false;
+        int n;
+        while ((n = lines.read(ring, pos, ring.length - pos)) >= 0) {
+            pos += n;
+            if (pos == ring.length) {
+                pos = 0;
+                wrapped = true;
+            }
+        }
+        char[] tail = ring;
+        int length = pos;
+        if (wrapped) {
+            tail = new char[ring.length];
+            System.arraycopy(ring, pos, tail, 0, ring.length - pos);
+            System.arraycopy(ring, 0, tail, ring.length - pos, pos);
+            length = ring.length;
+        }
+        return appendLast(out, tail, length, !wrapped);
+    }
+
+    // Ranged download: the head chunk carries the header rows, the tail chunk the last record.
+    // A tail that does not start the file begins mid-record, so its first line is never used.
+    public static String condense(String head, String tail, boolean tailIsWholeFile) throws IOException {
+        if (tailIsWholeFile)
+            return condense(new StringReader(tail));
+        StringBuilder out = new StringBuilder();
+        if (!endsHeader(head) || !readHeader(new LineReader(new StringReader(head)), out))
+            return null;
+        return appendLast(out, tail.toCharArray(), tail.length(), false);
+    }
+
+    private static boolean readHeader(LineReader lines, StringBuilder out) throws IOException {
+        for (int i = 0; i < HEADER_LINES; i++) {
+            if (!lines.next())
+                return false;
+            out.append(lines.chars(), 0, lines.length()).append("\r\n");
+        }
+        return true;
+    }
+
+    // The head chunk is cut at an arbitrary byte, so the third row must already be terminated
+    private static boolean endsHeader(String head) {
+        int newlines = 0;
+        for (int i = 0; i < head.length() && newlines < HEADER_LINES; i++) {
+            if (head.charAt(i) == '\n')
+                newlines++;
+        }
+        return newlines == HEADER_LINES;
+    }
+
+    private static String appendLast(StringBuilder out, char[] chars, int length, boolean startsAtLine) {
+        int end = length;
+        while (end > 0 && (chars[end - 1] == '\n' || chars[end - 1] == '\r'))
+            end--;
+        int start = end;
+        while (start > 0 && chars[start - 1] != '\n')
+            start--;
+        if (start == end || (start == 0 && !startsAtLine))
+            return null;
+        return out.append(chars, start, end - start).append("\r\n").toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// daily.csv: the date on the first line, units on the third and one comma separated record per
+// line after that. Only the last record is kept while streaming through the file.
+final class DailyCsvParser {
+    private DailyCsvParser() {
+    }
+
+    static Observation parse(Reader reader) throws IOException {
+        LineReader lines = new LineReader(reader);
+        if (!lines.next())
+            return null;
+        String date = new String(lines.chars(), 0, lines.length());
+        if (!lines.next() || !lines.next())
+            return null;
+        FieldScanner fields = new FieldScanner();
+        fields.reset(lines.chars(), lines.length(), ',');
+        String windSpeedUnit = fields.text(2);
+        String temperatureUnit = fields.text(7);
+        String pressureUnit = fields.text(8);
+        String rainUnit = fields.text(52);
+        char[] last = new char[0];
+        int lastLength = 0;
+        while (lines.next()) {
+            if (lines.length() == 0)
+                continue;
+            if (last.length < lines.length())
+                last = new char[lines.chars().length];
+            System.arraycopy(lines.chars(), 0, last, 0, lines.length());
+            lastLength = lines.length();
+        }
+        if (lastLength == 0)
+            return null;
+        fields.reset(last, lastLength, ',');
+        Observation observation = new Observation(Format.DAILY_CSV);
+        observation.setDate(date);
+        observation.setTime(fields.text(0));
+        observation.setWindSpeed(fields.toDouble(2));
+        observation.setWindSpeedUnit(windSpeedUnit);
+        observation.setHumidityText(fields.text(5));
+        observation.setTemperature(fields.toDouble(7));
+        observation.setTemperatureUnit(temperatureUnit);
+        observation.setPressure(fields.toDouble(8));
+        observation.setPressureUnit(pressureUnit);
+        observation.setRain(fields.toDouble(52));
+        observation.setRainUnit(rainUnit);
+        return observation;
+    }
+}
@@ -0,0 +1,108 @@
+package com.zem.pwswatcher.parser;
+
+// Walks the delimiter separated fields of one line in place. Fields are addressed by index and
+// only turned into objects when a caller asks for them.
+final class FieldScanner {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private char[] chars;
+    private int limit;
+    private char delimiter;
+    private int index;
+    private int start;
+    private int end;
+
+    void reset(char[] chars, int length, char delimiter) {
+        this.chars = chars;
+        this.limit = length;
+        this.delimiter = delimiter;
+        this.index = -1;
+        this.start = 0;
+        this.end = -1;
+    }
+
+    boolean seek(int fieldIndex) {
+        if (fieldIndex < this.index)
+            return false;
+        while (this.index < fieldIndex) {
+            if (this.end >= this.limit)
+                return false;
+            this.start = this.end + 1;
+            int position = this.start;
+            while (position < this.limit && this.chars[position] != this.delimiter)
+                position++;
+            this.end = position;
+            this.index++;
+        }
+        return true;
+    }
+
+    String text(int fieldIndex) {
+        if (!seek(fieldIndex))
+            throw new IllegalArgumentException("Missing field " + fieldIndex);
+        return new String(this.chars, this.start, this.end - this.start);
+    }
+
+    void appendTo(int fieldIndex, StringBuilder out) {
+        if (!seek(fieldIndex))
+            throw new IllegalArgumentException("Missing field " + fieldIndex);
+        out.append(this.chars, this.start, this.end - this.start);
+    }
+
+    // Plain decimals are read straight from the buffer; the mantissa is exact up to 15 digits and
+    // divided by an exact power of ten, which gives the same double as Double.parseDouble. Anything
+    // longer or with an exponent goes through the JDK.
+    double toDouble(int fieldIndex) {
+        if (!seek(fieldIndex))
+            throw new IllegalArgumentException("Missing field " + fieldIndex);
+        int position = this.start;
+        boolean negative = false;
+        if (position < this.end && (this.chars[position] == '-' || this.chars[position] == '+'))
+            negative = this.chars[position++] == '-';
+        long mantissa = 0;
+        boolean sawDigit = false;
+        int digits = 0;
+        int decimals = -1;
+        for (; position < this.end; position++) {
+            char c = this.chars[position];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                sawDigit = true;
+                if (mantissa > 0)
+                    digits++;
+                if (decimals >= 0)
+                    decimals++;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (position != this.end || !sawDigit || digits > 15 || decimals >= POWERS_OF_TEN.length)
+            return Double.parseDouble(new String(this.chars, this.start, this.end - this.start));
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    int toInt(int fieldIndex) {
+        if (!seek(fieldIndex))
+            throw new IllegalArgumentException("Missing field " + fieldIndex);
+        int position = this.start;
+        boolean negative = false;
+        if (position < this.end && (this.chars[position] == '-' || this.chars[position] == '+'))
+            negative = this.chars[position++] == '-';
+        if (position == this.end || this.end - position > 9)
+            return Integer.parseInt(new String(this.chars, this.start, this.end - this.start));
+        int value = 0;
+        for (; position < this.end; position++) {
+            char c = this.chars[position];
+            if (c < '0' || c > '9')
+                throw new NumberFormatException("For input string: \"" + new String(this.chars, this.start, this.end - this.start) + "\"");
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,65 @@
+package com.zem.pwswatcher.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Reads lines into one reusable buffer, accepting both \r\n and \n terminators.
+final class LineReader {
+    private final Reader reader;
+    private final char[] input = new char[4096];
+    private int inputPos = 0;
+    private int inputLen = 0;
+    private char[] line = new char[256];
+    private int lineLen = 0;
+
+    LineReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    boolean next() throws IOException {
+        this.lineLen = 0;
+        boolean read = false;
+        while (true) {
+            if (this.inputPos == this.inputLen) {
+                this.inputLen = this.reader.read(this.input, 0, this.input.length);
+                this.inputPos = 0;
+                if (this.inputLen <= 0) {
+                    this.inputLen = 0;
+                    return read;
+                }
+            }
+            char c = this.input[this.inputPos++];
+            read = true;
+            if (c == '\n') {
+                if (this.lineLen > 0 && this.line[this.lineLen - 1] == '\r')
+                    this.lineLen--;
+                return true;
+            }
+            if (this.lineLen == this.line.length) {
+                char[] grown = new char[this.line.length * 2];
+                System.arraycopy(this.line, 0, grown, 0, this.lineLen);
+                this.line = grown;
+            }
+            this.line[this.lineLen++] = c;
+        }
+    }
+
+    // Raw read that serves whatever next() has buffered ahead before touching the reader again
+    int read(char[] buffer, int offset, int length) throws IOException {
+        if (this.inputPos < this.inputLen) {
+            int n = Math.min(length, this.inputLen - this.inputPos);
+            System.arraycopy(this.input, this.inputPos, buffer, offset, n);
+            this.inputPos += n;
+            return n;
+        }
+        return this.reader.read(buffer, offset, length);
+    }
+
+    char[] chars() {
+        return this.line;
+    }
+
+    int length() {
+        return this.lineLen;
+    }
+}
@@ -0,0 +1,34 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public class ObservationParser {
+    private ObservationParser() {
+    }
+
+    // Returns null when the payload does not look like the given format.
+    public static Observation parse(Format format, Reader reader) throws IOException {
+        if (format == null)
+            return null;
+        try {
+            switch (format) {
+                case REALTIME_TXT:
+                    return RealtimeTxtParser.parse(reader);
+                case CLIENTRAW_TXT:
+                    return ClientRawParser.parse(reader);
+                case REALTIME_XML:
+                    return RealtimeXmlParser.parse(reader);
+                case DAILY_CSV:
+                    return DailyCsvParser.parse(reader);
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Cumulus realtime.txt: one space separated line, values already in the station units.
+final class RealtimeTxtParser {
+    private RealtimeTxtParser() {
+    }
+
+    static Observation parse(Reader reader) throws IOException {
+        LineReader lines = new LineReader(reader);
+        if (!lines.next())
+            return null;
+        FieldScanner fields = new FieldScanner();
+        fields.reset(lines.chars(), lines.length(), ' ');
+        Observation observation = new Observation(Format.REALTIME_TXT);
+        observation.setDate(fields.text(0));
+        observation.setTime(fields.text(1));
+        observation.setTemperatureText(fields.text(2));
+        observation.setHumidityText(fields.text(3));
+        observation.setWindSpeedText(fields.text(5));
+        observation.setRainText(fields.text(9));
+        observation.setPressureText(fields.text(10));
+        observation.setWindSpeedUnit(fields.text(13));
+        observation.setTemperatureUnit(fields.text(14));
+        observation.setPressureUnit(fields.text(15));
+        observation.setRainUnit(fields.text(16));
+        return observation;
+    }
+}
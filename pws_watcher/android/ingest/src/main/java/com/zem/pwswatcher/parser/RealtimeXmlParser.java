@@ -0,0 +1,145 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// realtime.xml: <data realtime="temp">12.3</data> style elements, values in the station units.
+// Field names resolve through one static table and reading stops as soon as every field the
+// widgets show has been seen, so the records and history sections further down are skipped.
+final class RealtimeXmlParser {
+    private static final int TEMPERATURE = 1;
+    private static final int TEMPERATURE_UNIT = 1 << 1;
+    private static final int HUMIDITY = 1 << 2;
+    private static final int PRESSURE = 1 << 3;
+    private static final int PRESSURE_UNIT = 1 << 4;
+    private static final int RAIN = 1 << 5;
+    private static final int RAIN_UNIT = 1 << 6;
+    private static final int WIND_SPEED = 1 << 7;
+    private static final int WIND_SPEED_UNIT = 1 << 8;
+    private static final int DATE = 1 << 9;
+    private static final int TIME = 1 << 10;
+    private static final int LOCATION = 1 << 11;
+    private static final int DATE_TIME = DATE | TIME;
+    private static final int ALL_FIELDS = (1 << 12) - 1;
+
+    private static final Set<String> ATTRIBUTES = new HashSet<>();
+    private static final Map<String, Integer> FIELDS = new HashMap<>();
+    private static XmlPullParserFactory parserFactory;
+
+    static {
+        for (String attribute : new String[]{"misc", "realtime", "today", "yesterday", "record", "units"})
+            ATTRIBUTES.add(attribute);
+        FIELDS.put("temp", TEMPERATURE);
+        FIELDS.put("tempunit", TEMPERATURE_UNIT);
+        FIELDS.put("hum", HUMIDITY);
+        FIELDS.put("press", PRESSURE);
+        FIELDS.put("barometer", PRESSURE);
+        FIELDS.put("barunit", PRESSURE_UNIT);
+        FIELDS.put("todaysrain", RAIN);
+        FIELDS.put("today_rainfall", RAIN);
+        FIELDS.put("rainunit", RAIN_UNIT);
+        FIELDS.put("windspeed", WIND_SPEED);
+        FIELDS.put("avg_windspeed", WIND_SPEED);
+        FIELDS.put("windunit", WIND_SPEED_UNIT);
+        FIELDS.put("station_date", DATE);
+        FIELDS.put("station_time", TIME);
+        FIELDS.put("refresh_time", DATE_TIME);
+        FIELDS.put("location", LOCATION);
+    }
+
+    private RealtimeXmlParser() {
+    }
+
+    private static synchronized XmlPullParser newParser() throws XmlPullParserException {
+        if (parserFactory == null)
+            parserFactory = XmlPullParserFactory.newInstance();
+        return parserFactory.newPullParser();
+    }
+
+    static Observation parse(Reader reader) throws IOException {
+        try {
+            XmlPullParser parser = newParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput(reader);
+            Observation observation = new Observation(Format.REALTIME_XML);
+            int found = 0;
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT && found != ALL_FIELDS) {
+                if (eventType == XmlPullParser.START_TAG && "data".equals(parser.getName())) {
+                    for (int i = 0; i < parser.getAttributeCount(); i++) {
+                        if (!ATTRIBUTES.contains(parser.getAttributeName(i)))
+                            continue;
+                        Integer field = FIELDS.get(parser.getAttributeValue(i));
+                        if (field != null && (found & field) != field) {
+                            readData(parser, field, observation);
+                            found |= field;
+                            break;
+                        }
+                    }
+                }
+                eventType = parser.next();
+            }
+            return found != 0 ? observation : null;
+        } catch (XmlPullParserException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void readData(XmlPullParser parser, int field, Observation observation) throws IOException, XmlPullParserException {
+        String text = parser.nextText();
+        switch (field) {
+            case TEMPERATURE:
+                observation.setTemperatureText(text);
+                break;
+            case TEMPERATURE_UNIT:
+                observation.setTemperatureUnit(text);
+                break;
+            case HUMIDITY:
+                observation.setHumidityText(text);
+                break;
+            case PRESSURE:
+                observation.setPressureText(text);
+                break;
+            case PRESSURE_UNIT:
+                observation.setPressureUnit(text);
+                break;
+            case RAIN:
+                observation.setRainText(text);
+                break;
+            case RAIN_UNIT:
+                observation.setRainUnit(text);
+                break;
+            case WIND_SPEED:
+                observation.setWindSpeedText(text);
+                break;
+            case WIND_SPEED_UNIT:
+                observation.setWindSpeedUnit(text);
+                break;
+            case DATE:
+                observation.setDate(text);
+                break;
+            case TIME:
+                observation.setTime(text);
+                break;
+            case LOCATION:
+                observation.setLocation(text);
+                break;
+            case DATE_TIME:
+                observation.setDate(text.substring(0, 10));
+                observation.setTime(text.substring(12));
+                break;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import java.util.Calendar;
+
+// Turns the station date and time of any format into epoch millis in one pass over the text:
+// numeric groups are collected whatever the separator ('/', '.', '-', ':' or ' ') and then
+// assigned to fields in the order that format uses. Two digit years get the current century,
+// which is what realtime.txt (dd/mm/yy) and daily.csv (mm/dd/yy) publish.
+public final class TimestampNormalizer {
+    public static final long UNKNOWN = Long.MIN_VALUE;
+    private static final int MAX_GROUPS = 6;
+    private static final ThreadLocal<Calendar> calendars = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setLenient(false);
+            return calendar;
+        }
+    };
+
+    private TimestampNormalizer() {
+    }
+
+    public static long toEpochMillis(Observation observation) {
+        String date = observation.getDate();
+        String time = observation.getTime();
+        if (observation.getFormat() == null || date == null || time == null)
+            return UNKNOWN;
+        int[] values = new int[MAX_GROUPS];
+        int[] widths = new int[MAX_GROUPS];
+        int groups = scan(date, values, widths, 0);
+        if (groups < 0)
+            return UNKNOWN;
+        int dateGroups = groups;
+        groups = scan(time, values, widths, groups);
+        if (groups < 0 || dateGroups != 3)
+            return UNKNOWN;
+        int meridiem = meridiem(time);
+
+        int year, month, day;
+        switch (observation.getFormat()) {
+            case REALTIME_TXT:
+            case CLIENTRAW_TXT:
+                day = values[0];
+                month = values[1];
+                year = values[2];
+                break;
+            case DAILY_CSV:
+                month = values[0];
+                day = values[1];
+                year = values[2];
+                break;
+            default:
+                year = values[0];
+                month = values[1];
+                day = values[2];
+                break;
+        }
+        int yearWidth = observation.getFormat() == Format.REALTIME_XML ? widths[0] : widths[2];
+        int hour = values[3];
+        int minute = values[4];
+        int second = groups > 5 ? values[5] : 0;
+        if (observation.getFormat() == Format.DAILY_CSV) {
+            if (groups != 5 || meridiem < 0 || hour < 1 || hour > 12)
+                return UNKNOWN;
+            hour = hour % 12 + (meridiem == Calendar.PM ? 12 : 0);
+        } else if (groups != 6 || meridiem >= 0) {
+            return UNKNOWN;
+        }
+
+        Calendar calendar = calendars.get();
+        try {
+            if (yearWidth <= 2) {
+                calendar.setTimeInMillis(System.currentTimeMillis());
+                year += calendar.get(Calendar.YEAR) / 100 * 100;
+            }
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute, second);
+            return calendar.getTimeInMillis();
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    // What the widgets show when the timestamp cannot be read: the station text, lightly cleaned
+    public static String rawText(Observation observation) {
+        String date = observation.getDate();
+        String time = observation.getTime();
+        if (observation.isConvertible() && date != null && time != null)
+            return (date + " " + time).trim().replace("/", "-").replace(".", "-");
+        return ((date != null) ? (date.trim() + " ") : "") + ((time != null) ? time.trim() : "");
+    }
+
+    private static int scan(String text, int[] values, int[] widths, int groups) {
+        int width = 0;
+        int value = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c >= '0' && c <= '9') {
+                if (width == 0 && groups == MAX_GROUPS)
+                    return -1;
+                value = value * 10 + (c - '0');
+                if (++width > 4)
+                    return -1;
+                continue;
+            }
+            if (width > 0) {
+                values[groups] = value;
+                widths[groups++] = width;
+                width = 0;
+                value = 0;
+            }
+            if (c != '/' && c != '.' && c != '-' && c != ':' && c != ' ' && !isMeridiemChar(c))
+                return -1;
+        }
+        return groups;
+    }
+
+    private static boolean isMeridiemChar(char c) {
+        c = Character.toLowerCase(c);
+        return c == 'a' || c == 'p' || c == 'm';
+    }
+
+    private static int meridiem(String time) {
+        String trimmed = time.trim();
+        int at = trimmed.length() - 2;
+        if (at >= 0 && trimmed.regionMatches(true, at, "am", 0, 2))
+            return Calendar.AM;
+        if (at >= 0 && trimmed.regionMatches(true, at, "pm", 0, 2))
+            return Calendar.PM;
+        return -1;
+    }
+}
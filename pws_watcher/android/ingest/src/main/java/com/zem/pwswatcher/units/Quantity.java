@@ -0,0 +1,8 @@
+package com.zem.pwswatcher.units;
+
+public enum Quantity {
+    TEMPERATURE,
+    PRESSURE,
+    RAIN,
+    WIND_SPEED
+}
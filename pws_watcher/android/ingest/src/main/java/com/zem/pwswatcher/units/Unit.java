@@ -0,0 +1,98 @@
+package com.zem.pwswatcher.units;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Station and preference units as codes. Each unit is a factor away from its quantity's base unit
+// (hPa, mm, km/h), temperatures are converted by formula; unit text is resolved once and remembered.
+public enum Unit {
+    CELSIUS(Quantity.TEMPERATURE, 1),
+    FAHRENHEIT(Quantity.TEMPERATURE, 1),
+    HECTOPASCAL(Quantity.PRESSURE, 1),
+    MILLIBAR(Quantity.PRESSURE, 1),
+    INCH_OF_MERCURY(Quantity.PRESSURE, 33.86389),
+    MILLIMETER(Quantity.RAIN, 1),
+    INCH(Quantity.RAIN, 25.4),
+    KILOMETER_PER_HOUR(Quantity.WIND_SPEED, 1),
+    METER_PER_SECOND(Quantity.WIND_SPEED, 3.6),
+    MILE_PER_HOUR(Quantity.WIND_SPEED, 1.60934),
+    KNOT(Quantity.WIND_SPEED, 1.852);
+
+    private static final Map<Quantity, Map<String, Unit>> resolved = new EnumMap<>(Quantity.class);
+
+    static {
+        for (Quantity quantity : Quantity.values())
+            resolved.put(quantity, new HashMap<String, Unit>());
+    }
+
+    final Quantity quantity;
+    final double factor;
+
+    Unit(Quantity quantity, double factor) {
+        this.quantity = quantity;
+        this.factor = factor;
+    }
+
+    public Quantity getQuantity() {
+        return quantity;
+    }
+
+    // Unknown text falls back to the base unit of the quantity, as the widgets always did
+    public static Unit of(String text, Quantity quantity) {
+        if (text == null)
+            return base(quantity);
+        Map<String, Unit> known = resolved.get(quantity);
+        synchronized (known) {
+            Unit unit = known.get(text);
+            if (unit == null) {
+                unit = resolve(normalize(text), quantity);
+                known.put(text, unit);
+            }
+            return unit;
+        }
+    }
+
+    private static Unit base(Quantity quantity) {
+        switch (quantity) {
+            case TEMPERATURE:
+                return CELSIUS;
+            case PRESSURE:
+                return HECTOPASCAL;
+            case RAIN:
+                return MILLIMETER;
+            default:
+                return KILOMETER_PER_HOUR;
+        }
+    }
+
+    private static Unit resolve(String unit, Quantity quantity) {
+        switch (quantity) {
+            case TEMPERATURE:
+                return unit.endsWith("f") ? FAHRENHEIT : CELSIUS;
+            case PRESSURE:
+                if (unit.equals("in") || unit.equals("inhg"))
+                    return INCH_OF_MERCURY;
+                return unit.equals("mb") ? MILLIBAR : HECTOPASCAL;
+            case RAIN:
+                return unit.equals("in") ? INCH : MILLIMETER;
+            default:
+                if (unit.equals("kts") || unit.equals("kn"))
+                    return KNOT;
+                if (unit.equals("mph"))
+                    return MILE_PER_HOUR;
+                return unit.equals("ms") ? METER_PER_SECOND : KILOMETER_PER_HOUR;
+        }
+    }
+
+    // "°F", " m/s", "inHg" -> "f", "ms", "inhg"
+    private static String normalize(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '/' && c != '°' && !Character.isWhitespace(c))
+                out.append(Character.toLowerCase(c));
+        }
+        return out.toString();
+    }
+}
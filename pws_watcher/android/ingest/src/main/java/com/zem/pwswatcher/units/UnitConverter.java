@@ -0,0 +1,31 @@
+package com.zem.pwswatcher.units;
+
+// Converts with the same operations, in the same order, as the string based code the widgets used
+// to carry, so displayed values round exactly as before: wind speed and pressure go through the
+// base unit (multiplied in, divided out) and are always rounded to two decimals, rain and
+// temperature only when the unit actually changes.
+public final class UnitConverter {
+    private UnitConverter() {
+    }
+
+    public static double convert(double value, Unit from, Unit to) {
+        switch (from.quantity) {
+            case TEMPERATURE:
+                if (from == to)
+                    return value;
+                if (from == Unit.FAHRENHEIT)
+                    return round((value - 32) * 5 / 9);
+                return round((value * 9 / 5) + 32);
+            case RAIN:
+                if (from == to)
+                    return value;
+                return round(value * from.factor / to.factor);
+            default:
+                return round(value * from.factor / to.factor);
+        }
+    }
+
+    private static double round(double value) {
+        return (double) Math.round(value * 100d) / 100d;
+    }
+}
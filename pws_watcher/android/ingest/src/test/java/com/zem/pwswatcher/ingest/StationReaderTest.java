@@ -0,0 +1,86 @@
+package com.zem.pwswatcher.ingest;
+
+import com.sun.net.httpserver.HttpServer;
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.MemorySchemeStore;
+import com.zem.pwswatcher.network.PayloadCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.Charset;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StationReaderTest {
+    private static final String REALTIME = "16/10/20 14:35:02 17.4 63 10.3 11.9 14.8 236 0.0 2.4 1016.2 SW 3 km/h C hPa mm\r\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private StationReader reader;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", exchange -> {
+            byte[] body = REALTIME.getBytes(Charset.forName("UTF-8"));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+        this.reader = new StationReader(new FetchCoordinator(new OkHttpClient(), new MemorySchemeStore(),
+                new PayloadCache(this.folder.getRoot(), 1024 * 1024)));
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    private Reading read(String url) {
+        return this.reader.read(new Source(1, "Station", url));
+    }
+
+    @Test
+    public void readsAStationFile() {
+        String url = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/realtime.txt";
+        Reading reading = read(url);
+        assertEquals(Reading.Status.OK, reading.getStatus());
+        assertEquals(url, reading.getEndpoint());
+        assertEquals(Format.REALTIME_TXT, reading.getFormat());
+        assertEquals(REALTIME.length(), reading.getLength());
+    }
+
+    @Test
+    public void malformedUrlIsInvalid() {
+        Reading reading = read("foo bar/realtime.txt");
+        assertEquals(Reading.Status.INVALID, reading.getStatus());
+        assertNull(reading.getEndpoint());
+        assertNull(reading.getFormat());
+    }
+
+    @Test
+    public void closedPortIsUnreachable() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        assertEquals(Reading.Status.UNREACHABLE, read("http://127.0.0.1:" + port + "/realtime.txt").getStatus());
+    }
+}
@@ -0,0 +1,343 @@
+package com.zem.pwswatcher.network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zem.pwswatcher.parser.CsvTail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FetchCoordinatorTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String REALTIME = "16/10/20 14:35:02 17.4 63 10.3 11.9 14.8 236 0.0 2.4 1016.2 SW 3 km/h C hPa mm\r\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private ExecutorService serverPool;
+    private ExecutorService pool;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile String csv;
+    private volatile boolean rangesHonoured = true;
+    private volatile boolean trickle = false;
+    private volatile int status = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.serverPool = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.serverPool);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+        this.pool = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        this.release.countDown();
+        this.server.stop(0);
+        this.serverPool.shutdownNow();
+        this.pool.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        if (this.trickle) {
+            trickle(exchange, REALTIME.getBytes(UTF_8));
+            return;
+        }
+        try {
+            this.release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        if (this.status != 200) {
+            respond(exchange, this.status, new byte[0]);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", "\"v1\"");
+        if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            this.conditionalRequests.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        if (path.endsWith(".csv")) {
+            byte[] body = this.csv.getBytes(UTF_8);
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null || !this.rangesHonoured) {
+                respond(exchange, 200, body);
+                return;
+            }
+            String spec = range.substring("bytes=".length());
+            int dash = spec.indexOf('-');
+            int first;
+            int last;
+            if (dash == 0) {
+                first = Math.max(0, body.length - Integer.parseInt(spec.substring(1)));
+                last = body.length - 1;
+            } else {
+                first = Integer.parseInt(spec.substring(0, dash));
+                last = Math.min(body.length - 1, Integer.parseInt(spec.substring(dash + 1)));
+            }
+            byte[] part = new byte[last - first + 1];
+            System.arraycopy(body, first, part, 0, part.length);
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + first + "-" + last + "/" + body.length);
+            respond(exchange, 206, part);
+            return;
+        }
+        respond(exchange, 200, REALTIME.getBytes(UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(code, body.length > 0 ? body.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Sends half of the body at once and the rest after release, starting with a single byte, so a
+    // client blocked in the body read gets to check for an interrupt before the body is complete
+    private void trickle(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int half = body.length / 2;
+            out.write(body, 0, half);
+            out.flush();
+            this.release.await(10, TimeUnit.SECONDS);
+            out.write(body, half, 1);
+            out.flush();
+            Thread.sleep(200);
+            out.write(body, half + 1, body.length - half - 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + path;
+    }
+
+    private FetchCoordinator coordinator(SchemeStore schemes) {
+        return new FetchCoordinator(new OkHttpClient(), schemes, new PayloadCache(this.folder.getRoot(), 1024 * 1024));
+    }
+
+    private FetchCoordinator coordinator() {
+        return coordinator(new MemorySchemeStore());
+    }
+
+    private static void awaitRequests(AtomicInteger counter, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && counter.get() < count; i++)
+            Thread.sleep(10);
+        assertEquals(count, counter.get());
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        this.release = new CountDownLatch(1);
+        final FetchCoordinator coordinator = coordinator();
+        final String url = url("/realtime.txt");
+        List<Future<Payload>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(this.pool.submit(new Callable<Payload>() {
+                @Override
+                public Payload call() throws IOException {
+                    return coordinator.fetch(url);
+                }
+            }));
+        }
+        awaitRequests(this.requests, 1);
+        while (coordinator.getCoalescedCount() < 7)
+            Thread.sleep(10);
+        this.release.countDown();
+        for (Future<Payload> result : results)
+            assertEquals(REALTIME, result.get().getBody());
+        assertEquals(1, this.requests.get());
+        assertEquals(8, coordinator.getRequestCount());
+        assertEquals(1, coordinator.getNetworkFetchCount());
+        assertEquals(7, coordinator.getCoalescedCount());
+    }
+
+    @Test
+    public void finishedBodyIsSharedWithinTheWindow() throws IOException {
+        FetchCoordinator coordinator = coordinator();
+        assertEquals(REALTIME, coordinator.fetch(url("/realtime.txt")).getBody());
+        assertEquals(REALTIME, coordinator.fetch(url("/realtime.txt")).getBody());
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    public void failuresAreNotShared() throws IOException {
+        this.status = 500;
+        FetchCoordinator coordinator = coordinator();
+        assertNull(coordinator.fetch(url("/realtime.txt")));
+        this.status = 200;
+        assertEquals(REALTIME, coordinator.fetch(url("/realtime.txt")).getBody());
+        assertEquals(2, this.requests.get());
+    }
+
+    @Test
+    public void notModifiedReusesTheCachedBody() throws IOException {
+        Payload first = coordinator().fetch(url("/realtime.txt"));
+        assertFalse(first.isNotModified());
+        FetchCoordinator next = coordinator();
+        Payload second = next.fetch(url("/realtime.txt"));
+        assertTrue(second.isNotModified());
+        assertEquals(REALTIME, second.getBody());
+        assertEquals(1, this.conditionalRequests.get());
+        assertEquals(1, next.getConditionalRequestCount());
+        assertEquals(1, next.getNotModifiedCount());
+    }
+
+    @Test
+    public void interruptedLeaderLetsFollowersRetry() throws Exception {
+        this.release = new CountDownLatch(1);
+        this.trickle = true;
+        final FetchCoordinator coordinator = coordinator();
+        final String url = url("/realtime.txt");
+        Future<Payload> leader = this.pool.submit(new Callable<Payload>() {
+            @Override
+            public Payload call() throws IOException {
+                return coordinator.fetch(url);
+            }
+        });
+        awaitRequests(this.requests, 1);
+        Future<Payload> follower = this.pool.submit(new Callable<Payload>() {
+            @Override
+            public Payload call() throws IOException {
+                return coordinator.fetch(url);
+            }
+        });
+        while (coordinator.getCoalescedCount() < 1)
+            Thread.sleep(10);
+        // Socket reads only see the interrupt once more of the body comes in
+        leader.cancel(true);
+        this.release.countDown();
+        assertEquals(REALTIME, follower.get(10, TimeUnit.SECONDS).getBody());
+        assertEquals(2, this.requests.get());
+        assertEquals(2, coordinator.getNetworkFetchCount());
+    }
+
+    @Test
+    public void interruptedFollowerFailsAlone() throws Exception {
+        this.release = new CountDownLatch(1);
+        final FetchCoordinator coordinator = coordinator();
+        final String url = url("/realtime.txt");
+        Future<Payload> leader = this.pool.submit(new Callable<Payload>() {
+            @Override
+            public Payload call() throws IOException {
+                return coordinator.fetch(url);
+            }
+        });
+        awaitRequests(this.requests, 1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        Future<?> follower = this.pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.fetch(url);
+                } catch (InterruptedIOException e) {
+                    failed.countDown();
+                } catch (IOException e) {
+                    fail(e.toString());
+                }
+            }
+        });
+        while (coordinator.getCoalescedCount() < 1)
+            Thread.sleep(10);
+        follower.cancel(true);
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        this.release.countDown();
+        assertEquals(REALTIME, leader.get(10, TimeUnit.SECONDS).getBody());
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    public void rangedCsvStitchesHeadAndTail() throws IOException {
+        this.csv = dailyCsv();
+        FetchCoordinator coordinator = coordinator();
+        Payload payload = coordinator.fetch(url("/daily.csv"));
+        assertEquals(CsvTail.condense(new StringReader(this.csv)), payload.getBody());
+        assertEquals(2, this.requests.get());
+        assertEquals(1, coordinator.getRangedCsvReadCount());
+    }
+
+    @Test
+    public void shortCsvComesWholeInTheTail() throws IOException {
+        this.csv = dailyCsv().substring(0, 2000);
+        this.csv = this.csv.substring(0, this.csv.lastIndexOf('\n') + 1);
+        FetchCoordinator coordinator = coordinator();
+        Payload payload = coordinator.fetch(url("/daily.csv"));
+        assertEquals(CsvTail.condense(new StringReader(this.csv)), payload.getBody());
+        assertEquals(1, this.requests.get());
+        assertEquals(1, coordinator.getRangedCsvReadCount());
+    }
+
+    @Test
+    public void csvWithoutRangeSupportIsCondensedWhole() throws IOException {
+        this.csv = dailyCsv();
+        this.rangesHonoured = false;
+        FetchCoordinator coordinator = coordinator();
+        Payload payload = coordinator.fetch(url("/daily.csv"));
+        assertEquals(CsvTail.condense(new StringReader(this.csv)), payload.getBody());
+        assertEquals(1, this.requests.get());
+        assertEquals(1, coordinator.getFullCsvReadCount());
+    }
+
+    @Test
+    public void csvNotModifiedReusesTheCondensedBody() throws IOException {
+        this.csv = dailyCsv();
+        String condensed = coordinator().fetch(url("/daily.csv")).getBody();
+        Payload second = coordinator().fetch(url("/daily.csv"));
+        assertTrue(second.isNotModified());
+        assertEquals(condensed, second.getBody());
+    }
+
+    @Test
+    public void schemelessUrlRemembersPlainHttp() throws IOException {
+        MemorySchemeStore schemes = new MemorySchemeStore();
+        String authority = "127.0.0.1:" + this.server.getAddress().getPort();
+        Payload payload = coordinator(schemes).fetch(authority + "/realtime.txt");
+        assertEquals(REALTIME, payload.getBody());
+        assertFalse(payload.isSecure());
+        assertEquals("http", schemes.getScheme(authority));
+    }
+
+    private static String dailyCsv() {
+        StringBuilder out = new StringBuilder("10/16/20\r\nTime,Dir,WindSpeed\r\n,deg,km/h\r\n");
+        for (int minutes = 0; minutes < 24 * 60; minutes += 5)
+            out.append(minutes).append(",148,").append(minutes % 40 / 2.0).append(",32.8,0.0,68,11.9,13.4,1023.3,0.0\r\n");
+        return out.toString();
+    }
+}
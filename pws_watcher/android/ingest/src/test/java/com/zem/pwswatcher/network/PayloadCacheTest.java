@@ -0,0 +1,120 @@
+package com.zem.pwswatcher.network;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadCacheTest {
+    private static final long BUDGET = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CachedPayload entry(String url, String body) {
+        return new CachedPayload(url, "http://" + url, "\"v1\"", null, body, 1234);
+    }
+
+    private File[] files() {
+        return this.folder.getRoot().listFiles();
+    }
+
+    @Test
+    public void entriesSurviveTheProcess() {
+        new PayloadCache(this.folder.getRoot(), BUDGET).put(entry("station.example/realtime.txt", "body °C"));
+        CachedPayload read = new PayloadCache(this.folder.getRoot(), BUDGET).get("station.example/realtime.txt");
+        assertNotNull(read);
+        assertEquals("station.example/realtime.txt", read.url);
+        assertEquals("http://station.example/realtime.txt", read.resolvedUrl);
+        assertEquals("\"v1\"", read.etag);
+        assertNull(read.lastModified);
+        assertEquals("body °C", read.body);
+        assertEquals(1234, read.storedAt);
+        assertNull(new PayloadCache(this.folder.getRoot(), BUDGET).get("station.example/realtime.xml"));
+    }
+
+    @Test
+    public void urlsWithTheSameHashCodeKeepTheirOwnEntries() {
+        assertEquals("x/Aa.txt".hashCode(), "x/BB.txt".hashCode());
+        PayloadCache cache = new PayloadCache(this.folder.getRoot(), BUDGET);
+        cache.put(entry("x/Aa.txt", "first"));
+        cache.put(entry("x/BB.txt", "second"));
+        assertEquals(2, files().length);
+        PayloadCache reopened = new PayloadCache(this.folder.getRoot(), BUDGET);
+        assertEquals("first", reopened.get("x/Aa.txt").body);
+        assertEquals("second", reopened.get("x/BB.txt").body);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        PayloadCache sizing = new PayloadCache(this.folder.getRoot(), BUDGET);
+        sizing.put(entry("a.example/realtime.txt", "aaaa"));
+        long size = sizing.getSizeBytes();
+        files()[0].delete();
+
+        PayloadCache cache = new PayloadCache(this.folder.getRoot(), 2 * size);
+        cache.put(entry("a.example/realtime.txt", "aaaa"));
+        cache.put(entry("b.example/realtime.txt", "bbbb"));
+        cache.get("a.example/realtime.txt");
+        cache.put(entry("c.example/realtime.txt", "cccc"));
+        assertNotNull(cache.get("a.example/realtime.txt"));
+        assertNull(cache.get("b.example/realtime.txt"));
+        assertNotNull(cache.get("c.example/realtime.txt"));
+        assertEquals(2 * size, cache.getSizeBytes());
+    }
+
+    @Test
+    public void memoryHitsKeepEntriesFreshOnDisk() {
+        PayloadCache sizing = new PayloadCache(this.folder.getRoot(), BUDGET);
+        sizing.put(entry("a.example/realtime.txt", "aaaa"));
+        long size = sizing.getSizeBytes();
+        files()[0].delete();
+
+        PayloadCache cache = new PayloadCache(this.folder.getRoot(), 2 * size);
+        cache.put(entry("a.example/realtime.txt", "aaaa"));
+        cache.put(entry("b.example/realtime.txt", "bbbb"));
+        long past = System.currentTimeMillis() - 60000;
+        for (File file : files())
+            assertTrue(file.setLastModified(past));
+        assertNotNull(cache.get("a.example/realtime.txt"));
+
+        PayloadCache next = new PayloadCache(this.folder.getRoot(), 2 * size);
+        next.put(entry("c.example/realtime.txt", "cccc"));
+        assertNotNull(next.get("a.example/realtime.txt"));
+        assertNull(next.get("b.example/realtime.txt"));
+    }
+
+    @Test
+    public void corruptLengthIsDropped() throws IOException {
+        new PayloadCache(this.folder.getRoot(), BUDGET).put(entry("station.example/realtime.txt", "body"));
+        File file = files()[0];
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(file.length() - 4 - 4);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        PayloadCache cache = new PayloadCache(this.folder.getRoot(), BUDGET);
+        assertNull(cache.get("station.example/realtime.txt"));
+        assertFalse(file.exists());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void truncatedFileIsDropped() throws IOException {
+        new PayloadCache(this.folder.getRoot(), BUDGET).put(entry("station.example/realtime.txt", "body"));
+        File file = files()[0];
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(file.length() - 2);
+        }
+        assertNull(new PayloadCache(this.folder.getRoot(), BUDGET).get("station.example/realtime.txt"));
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,92 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.units.Unit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ClientRawParserTest {
+    private static String[] fields() {
+        String[] fields = new String[178];
+        Arrays.fill(fields, "0.0");
+        fields[0] = "12345";
+        fields[2] = "5.1";
+        fields[4] = "14.6";
+        fields[5] = "72";
+        fields[6] = "1013.4";
+        fields[7] = "1.8";
+        fields[29] = "14";
+        fields[30] = "52";
+        fields[31] = "07";
+        fields[32] = "Station-Lyon";
+        fields[48] = "2";
+        fields[74] = "16/10/2020";
+        return fields;
+    }
+
+    private static Observation parse(String text) throws IOException {
+        return ObservationParser.parse(Format.CLIENTRAW_TXT, new StringReader(text));
+    }
+
+    private static String join(String[] fields, int count) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            line.append(i > 0 ? " " : "").append(fields[i]);
+        return line.toString();
+    }
+
+    @Test
+    public void parsesFixedMetricFields() throws IOException {
+        String[] fields = fields();
+        Observation observation = parse(join(fields, fields.length) + "\r\n");
+        assertEquals(Format.CLIENTRAW_TXT, observation.getFormat());
+        assertEquals(5.1, observation.getWindSpeed(), 0.0);
+        assertEquals(Unit.KNOT, observation.getWindSpeedUnitCode());
+        assertEquals(14.6, observation.getTemperature(), 0.0);
+        assertEquals(Unit.CELSIUS, observation.getTemperatureUnitCode());
+        assertEquals("72", observation.getHumidityText());
+        assertEquals(1013.4, observation.getPressure(), 0.0);
+        assertEquals(Unit.HECTOPASCAL, observation.getPressureUnitCode());
+        assertEquals(1.8, observation.getRain(), 0.0);
+        assertEquals(Unit.MILLIMETER, observation.getRainUnitCode());
+        assertEquals("14:52:07", observation.getTime());
+        assertEquals(2, observation.getConditionCode());
+        assertEquals("16/10/2020", observation.getDate());
+    }
+
+    @Test
+    public void onlyTheFirstLineIsRead() throws IOException {
+        String[] fields = fields();
+        Observation observation = parse(join(fields, fields.length) + "\nnot a clientraw line\n");
+        assertEquals(14.6, observation.getTemperature(), 0.0);
+    }
+
+    @Test
+    public void shortLineIsRejected() throws IOException {
+        assertNull(parse(join(fields(), 60)));
+        assertNull(parse(join(fields(), 5)));
+    }
+
+    @Test
+    public void garbledNumberIsRejected() throws IOException {
+        String[] fields = fields();
+        fields[4] = "14,6";
+        assertNull(parse(join(fields, fields.length)));
+        fields = fields();
+        fields[48] = "-";
+        assertNull(parse(join(fields, fields.length)));
+    }
+
+    @Test
+    public void emptyPayloadIsRejected() throws IOException {
+        assertNull(parse(""));
+    }
+}
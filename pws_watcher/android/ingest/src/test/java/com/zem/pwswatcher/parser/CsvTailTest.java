@@ -0,0 +1,110 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CsvTailTest {
+    private static final String HEADER = DailyCsvParserTest.HEADER;
+
+    // A day of five minute records, far longer than TAIL_BYTES
+    private static String fullDay() {
+        StringBuilder out = new StringBuilder(HEADER);
+        for (int minutes = 0; minutes < 24 * 60; minutes += 5) {
+            int hour = minutes / 60 % 12 == 0 ? 12 : minutes / 60 % 12;
+            String time = hour + ":" + String.format("%02d", minutes % 60) + (minutes < 12 * 60 ? " AM" : " PM");
+            out.append(DailyCsvParserTest.record(time, String.valueOf(minutes % 40 / 2.0), "70",
+                    String.valueOf(10 + minutes % 7), "1013.8", String.valueOf(minutes / 100 / 10.0)));
+        }
+        return out.toString();
+    }
+
+    private static String lastRecord(String csv) {
+        String trimmed = csv.substring(0, csv.length() - 2);
+        return trimmed.substring(trimmed.lastIndexOf('\n') + 1) + "\r\n";
+    }
+
+    private static String tail(String csv) {
+        return csv.substring(csv.length() - CsvTail.TAIL_BYTES);
+    }
+
+    private static String head(String csv) {
+        return csv.substring(0, CsvTail.HEAD_BYTES);
+    }
+
+    @Test
+    public void condensesFullDownloadToHeaderAndLastRecord() throws IOException {
+        String csv = fullDay();
+        assertEquals(HEADER + lastRecord(csv), CsvTail.condense(new StringReader(csv)));
+    }
+
+    @Test
+    public void stitchesRangedHeadAndTail() throws IOException {
+        String csv = fullDay();
+        String condensed = CsvTail.condense(head(csv), tail(csv), false);
+        assertEquals(CsvTail.condense(new StringReader(csv)), condensed);
+    }
+
+    @Test
+    public void condensedDayParsesLikeTheFullDay() throws IOException {
+        String csv = fullDay();
+        Observation full = ObservationParser.parse(Format.DAILY_CSV, new StringReader(csv));
+        Observation condensed = ObservationParser.parse(Format.DAILY_CSV,
+                new StringReader(CsvTail.condense(head(csv), tail(csv), false)));
+        assertEquals("11:55 PM", full.getTime());
+        assertEquals(full.getTime(), condensed.getTime());
+        assertEquals(full.getTemperature(), condensed.getTemperature(), 0.0);
+        assertEquals(full.getRain(), condensed.getRain(), 0.0);
+        assertEquals(full.getPressureUnitCode(), condensed.getPressureUnitCode());
+    }
+
+    @Test
+    public void shortFileFitsInTheTail() throws IOException {
+        String csv = HEADER + DailyCsvParserTest.record("12:00 AM", "11.5", "68", "13.4", "1023.3", "0.0")
+                + DailyCsvParserTest.record("12:05 AM", "9.0", "69", "13.2", "1023.1", "0.0");
+        assertEquals(HEADER + lastRecord(csv), CsvTail.condense(csv, csv, true));
+    }
+
+    @Test
+    public void lastRecordWithoutNewline() throws IOException {
+        String csv = fullDay();
+        String unterminated = csv.substring(0, csv.length() - 2);
+        assertEquals(HEADER + lastRecord(csv), CsvTail.condense(new StringReader(unterminated)));
+        assertEquals(HEADER + lastRecord(csv), CsvTail.condense(head(unterminated), tail(unterminated), false));
+    }
+
+    @Test
+    public void bareNewlinesAreAccepted() throws IOException {
+        String csv = fullDay().replace("\r\n", "\n");
+        assertEquals(HEADER + lastRecord(fullDay()), CsvTail.condense(new StringReader(csv)));
+        assertEquals(HEADER + lastRecord(fullDay()), CsvTail.condense(head(csv), tail(csv), false));
+    }
+
+    @Test
+    public void headCutInsideTheHeaderIsRejected() throws IOException {
+        String csv = fullDay();
+        assertNull(CsvTail.condense(HEADER.substring(0, HEADER.length() - 3), tail(csv), false));
+    }
+
+    @Test
+    public void tailWithoutACompleteRecordIsRejected() throws IOException {
+        String csv = fullDay();
+        String record = lastRecord(csv);
+        assertNull(CsvTail.condense(head(csv), record.substring(10), false));
+        assertNull(CsvTail.condense(head(csv), "", false));
+    }
+
+    @Test
+    public void headerOnlyIsRejected() throws IOException {
+        assertNull(CsvTail.condense(new StringReader(HEADER)));
+        assertNull(CsvTail.condense(new StringReader("10/16/20\r\nTime,Dir\r\n")));
+        assertNull(CsvTail.condense(new StringReader("")));
+    }
+}
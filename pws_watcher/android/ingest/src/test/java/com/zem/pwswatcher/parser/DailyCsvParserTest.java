@@ -0,0 +1,88 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.units.Unit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DailyCsvParserTest {
+    static final String HEADER = "10/16/20\r\n"
+            + "Time,Dir,WindSpeed,Gust,Rain,Humidity,DewPoint,Temperature,Pressure" + columns(9, 52) + ",DailyRain\r\n"
+            + ",deg,km/h,km/h,mm,%,C,C,hPa" + dashes(9, 52) + ",mm\r\n";
+
+    static String columns(int from, int to) {
+        StringBuilder out = new StringBuilder();
+        for (int i = from; i < to; i++)
+            out.append(",C").append(i);
+        return out.toString();
+    }
+
+    static String dashes(int from, int to) {
+        StringBuilder out = new StringBuilder();
+        for (int i = from; i < to; i++)
+            out.append(",-");
+        return out.toString();
+    }
+
+    static String record(String time, String windSpeed, String humidity, String temperature, String pressure,
+                         String rain) {
+        return time + ",148," + windSpeed + ",32.8,0.0," + humidity + ",11.9," + temperature + "," + pressure
+                + dashes(9, 52).replace('-', '1') + "," + rain + "\r\n";
+    }
+
+    private static Observation parse(String text) throws IOException {
+        return ObservationParser.parse(Format.DAILY_CSV, new StringReader(text));
+    }
+
+    @Test
+    public void keepsTheLastRecord() throws IOException {
+        Observation observation = parse(HEADER
+                + record("12:00 AM", "11.5", "68", "13.4", "1023.3", "0.0")
+                + record("2:55 AM", "1.8", "85", "12.7", "1013.8", "1.8"));
+        assertEquals("10/16/20", observation.getDate());
+        assertEquals("2:55 AM", observation.getTime());
+        assertEquals(1.8, observation.getWindSpeed(), 0.0);
+        assertEquals(Unit.KILOMETER_PER_HOUR, observation.getWindSpeedUnitCode());
+        assertEquals("85", observation.getHumidityText());
+        assertEquals(12.7, observation.getTemperature(), 0.0);
+        assertEquals(Unit.CELSIUS, observation.getTemperatureUnitCode());
+        assertEquals(1013.8, observation.getPressure(), 0.0);
+        assertEquals(Unit.HECTOPASCAL, observation.getPressureUnitCode());
+        assertEquals(1.8, observation.getRain(), 0.0);
+        assertEquals(Unit.MILLIMETER, observation.getRainUnitCode());
+    }
+
+    @Test
+    public void skipsBlankLinesAndBareNewlines() throws IOException {
+        String text = HEADER + record("12:00 AM", "11.5", "68", "13.4", "1023.3", "0.0") + "\r\n\n";
+        Observation observation = parse(text.replace("\r\n", "\n"));
+        assertEquals("12:00 AM", observation.getTime());
+        assertEquals(13.4, observation.getTemperature(), 0.0);
+    }
+
+    @Test
+    public void headerWithoutRecordsIsRejected() throws IOException {
+        assertNull(parse(HEADER));
+        assertNull(parse("10/16/20\r\nTime,Dir\r\n"));
+        assertNull(parse(""));
+    }
+
+    @Test
+    public void missingUnitColumnsAreRejected() throws IOException {
+        assertNull(parse("10/16/20\r\nTime,Dir,WindSpeed\r\n,deg,km/h\r\n"
+                + record("12:00 AM", "11.5", "68", "13.4", "1023.3", "0.0")));
+    }
+
+    @Test
+    public void shortOrGarbledRecordIsRejected() throws IOException {
+        assertNull(parse(HEADER + "2:55 AM,145,1.8,2.2,0.0,85,5.1,12.7\r\n"));
+        assertNull(parse(HEADER + record("2:55 AM", "1.8", "85", "n/a", "1013.8", "0.0")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.zem.pwswatcher.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FieldScannerTest {
+    private static FieldScanner scan(String line, char delimiter) {
+        FieldScanner fields = new FieldScanner();
+        fields.reset(line.toCharArray(), line.length(), delimiter);
+        return fields;
+    }
+
+    @Test
+    public void readsFieldsByIndex() {
+        FieldScanner fields = scan("a,bb,,ccc", ',');
+        assertEquals("a", fields.text(0));
+        assertEquals("bb", fields.text(1));
+        assertEquals("", fields.text(2));
+        assertEquals("ccc", fields.text(3));
+    }
+
+    @Test
+    public void skipsFieldsNotAskedFor() {
+        FieldScanner fields = scan("1 2 3 4 5", ' ');
+        assertEquals("4", fields.text(3));
+        StringBuilder out = new StringBuilder("x");
+        fields.appendTo(4, out);
+        assertEquals("x5", out.toString());
+    }
+
+    @Test
+    public void cannotGoBack() {
+        FieldScanner fields = scan("1 2 3", ' ');
+        assertTrue(fields.seek(2));
+        assertFalse(fields.seek(1));
+    }
+
+    @Test
+    public void missingFieldThrows() {
+        FieldScanner fields = scan("1 2", ' ');
+        assertFalse(fields.seek(2));
+        try {
+            scan("1 2", ' ').text(2);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void doublesMatchParseDouble() {
+        String[] values = {"0", "0.0", "-0.6", "+0.012", "1016.2", "29.94", "0.1", "0.3", "17.4", "1e3", "-2.5E-2",
+                "123456789012345.6", "1234567890123456.7", ".5", "5.", "007.10"};
+        for (String value : values)
+            assertEquals(value, Double.parseDouble(value), scan(value, ' ').toDouble(0), 0.0);
+    }
+
+    @Test
+    public void garbledDoubleThrows() {
+        try {
+            scan("12.3.4", ' ').toDouble(0);
+            fail();
+        } catch (NumberFormatException expected) {
+        }
+        try {
+            scan("---", ' ').toDouble(0);
+            fail();
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void readsInts() {
+        FieldScanner fields = scan("48,-3,+7,2147483647", ',');
+        assertEquals(48, fields.toInt(0));
+        assertEquals(-3, fields.toInt(1));
+        assertEquals(7, fields.toInt(2));
+        assertEquals(Integer.MAX_VALUE, fields.toInt(3));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void garbledIntThrows() {
+        scan("4x", ' ').toInt(0);
+    }
+}
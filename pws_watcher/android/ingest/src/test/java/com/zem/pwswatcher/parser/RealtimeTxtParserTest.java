@@ -0,0 +1,75 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.units.Unit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RealtimeTxtParserTest {
+    private static final String METRIC = "16/10/20 14:35:02 17.4 63 10.3 11.9 14.8 236 0.0 2.4 1016.2 SW 3 km/h C hPa mm"
+            + " 84.1 -0.6 31.8 612.4 0.0 21.3 48 17.4 0.3 18.9 13:12 9.6 07:21 29.5 11:48 41.0 11:47 1017.4 00:03"
+            + " 1016.1 14:20 1.9.4 1099 23.4 17.4 18.7 2 0.36 412 231 0.0 2 1 0 239 1113 ft 17.1 3.4 498 1\r\n";
+    private static final String IMPERIAL = "16/10/20 09:05:31 58.6 81 52.9 4.3 6.0 182 0.00 0.12 29.94 S 1 mph F in in"
+            + " 22.6 +0.012 1.38 34.71 0.31 70.2 44 58.6 +1.4 61.3 00:10 51.8 06:52 13.0 03:15 19.0 03:14 30.01 00:00"
+            + " 29.93 08:41 3.8.3 3101 9.0 58.6 60.1 1 0.02 209 184 0.00 1 1 0 190 2744 ft 56.9 0.6 214 0\n";
+
+    private static Observation parse(String text) throws IOException {
+        return ObservationParser.parse(Format.REALTIME_TXT, new StringReader(text));
+    }
+
+    @Test
+    public void parsesMetricStation() throws IOException {
+        Observation observation = parse(METRIC);
+        assertEquals("16/10/20", observation.getDate());
+        assertEquals("14:35:02", observation.getTime());
+        assertEquals("17.4", observation.getTemperatureText());
+        assertEquals("63", observation.getHumidityText());
+        assertEquals("11.9", observation.getWindSpeedText());
+        assertEquals("2.4", observation.getRainText());
+        assertEquals("1016.2", observation.getPressureText());
+        assertEquals(Unit.KILOMETER_PER_HOUR, observation.getWindSpeedUnitCode());
+        assertEquals(Unit.CELSIUS, observation.getTemperatureUnitCode());
+        assertEquals(Unit.HECTOPASCAL, observation.getPressureUnitCode());
+        assertEquals(Unit.MILLIMETER, observation.getRainUnitCode());
+        // realtime.txt values are shown as published, never converted
+        assertTrue(Double.isNaN(observation.getTemperature()));
+    }
+
+    @Test
+    public void parsesImperialStation() throws IOException {
+        Observation observation = parse(IMPERIAL);
+        assertEquals("58.6", observation.getTemperatureText());
+        assertEquals("29.94", observation.getPressureText());
+        assertEquals("mph", observation.getWindSpeedUnit());
+        assertEquals(Unit.MILE_PER_HOUR, observation.getWindSpeedUnitCode());
+        assertEquals(Unit.FAHRENHEIT, observation.getTemperatureUnitCode());
+        assertEquals(Unit.INCH_OF_MERCURY, observation.getPressureUnitCode());
+        assertEquals(Unit.INCH, observation.getRainUnitCode());
+    }
+
+    @Test
+    public void onlyUnitFieldsAreRequired() throws IOException {
+        Observation observation = parse("16/10/20 14:35:02 17.4 63 10.3 11.9 14.8 236 0.0 2.4 1016.2 SW 3 km/h C hPa mm");
+        assertEquals("mm", observation.getRainUnit());
+    }
+
+    @Test
+    public void shortLineIsRejected() throws IOException {
+        assertNull(parse("16/10/20 14:35:02 17.4 63 10.3 11.9 14.8 236 0.0 2.4 1016.2 SW 3 km/h C hPa"));
+        assertNull(parse("16/10/20"));
+        assertNull(parse("<html><body>Not Found</body></html>"));
+    }
+
+    @Test
+    public void emptyPayloadIsRejected() throws IOException {
+        assertNull(parse(""));
+    }
+}
@@ -0,0 +1,102 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+import com.zem.pwswatcher.units.Unit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RealtimeXmlParserTest {
+    private static final String REALTIME = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<maintag>\n"
+            + "\t<data misc=\"location\">Castelnuovo Rangone</data>\n"
+            + "\t<data misc=\"refresh_time\">2020-10-16, 14:35:02</data>\n"
+            + "\t<data units=\"tempunit\">&#176;C</data>\n"
+            + "\t<data units=\"windunit\">km/h</data>\n"
+            + "\t<data units=\"barunit\">hPa</data>\n"
+            + "\t<data units=\"rainunit\">mm</data>\n"
+            + "\t<data realtime=\"temp\">17.4</data>\n"
+            + "\t<data realtime=\"hum\">63</data>\n"
+            + "\t<data realtime=\"press\">1016.2</data>\n"
+            + "\t<data realtime=\"todaysrain\">2.4</data>\n"
+            + "\t<data realtime=\"windspeed\">11.9</data>\n"
+            + "</maintag>\n";
+
+    private static Observation parse(String text) throws IOException {
+        return ObservationParser.parse(Format.REALTIME_XML, new StringReader(text));
+    }
+
+    @Test
+    public void parsesRealtimeFields() throws IOException {
+        Observation observation = parse(REALTIME);
+        assertEquals("Castelnuovo Rangone", observation.getLocation());
+        assertEquals("2020-10-16", observation.getDate());
+        assertEquals("14:35:02", observation.getTime());
+        assertEquals("17.4", observation.getTemperatureText());
+        assertEquals("63", observation.getHumidityText());
+        assertEquals("1016.2", observation.getPressureText());
+        assertEquals("2.4", observation.getRainText());
+        assertEquals("11.9", observation.getWindSpeedText());
+        assertEquals("°C", observation.getTemperatureUnit());
+        assertEquals(Unit.CELSIUS, observation.getTemperatureUnitCode());
+        assertEquals(Unit.KILOMETER_PER_HOUR, observation.getWindSpeedUnitCode());
+    }
+
+    @Test
+    public void firstValueOfAFieldWins() throws IOException {
+        Observation observation = parse("<maintag>"
+                + "<data realtime=\"temp\">17.4</data>"
+                + "<data today=\"temp\">21.0</data>"
+                + "<data record=\"temp\">38.2</data>"
+                + "</maintag>");
+        assertEquals("17.4", observation.getTemperatureText());
+    }
+
+    @Test
+    public void readsFullExportNames() throws IOException {
+        Observation observation = parse("<maintag>"
+                + "<data misc=\"station_date\">2020-10-16</data>"
+                + "<data misc=\"station_time\">14:35:02</data>"
+                + "<data realtime=\"barometer\">1016.2</data>"
+                + "<data realtime=\"avg_windspeed\">7.3</data>"
+                + "<data today=\"today_rainfall\">2.4</data>"
+                + "</maintag>");
+        assertEquals("2020-10-16", observation.getDate());
+        assertEquals("14:35:02", observation.getTime());
+        assertEquals("1016.2", observation.getPressureText());
+        assertEquals("7.3", observation.getWindSpeedText());
+        assertEquals("2.4", observation.getRainText());
+    }
+
+    @Test
+    public void missingFieldsStayNull() throws IOException {
+        Observation observation = parse("<maintag><data realtime=\"temp\">17.4</data></maintag>");
+        assertEquals("17.4", observation.getTemperatureText());
+        assertNull(observation.getDate());
+        assertNull(observation.getPressureText());
+    }
+
+    @Test
+    public void documentWithoutKnownFieldsIsRejected() throws IOException {
+        assertNull(parse("<maintag><data other=\"temp\">17.4</data><data realtime=\"dew\">9.1</data></maintag>"));
+        assertNull(parse("<html><body>Not Found</body></html>"));
+    }
+
+    @Test
+    public void garbledDocumentIsRejected() throws IOException {
+        assertNull(parse("<maintag><data realtime=\"temp\">17.4</maintag>"));
+        assertNull(parse("16/10/20 14:35:02 17.4 63"));
+        assertNull(parse(""));
+    }
+
+    @Test
+    public void shortRefreshTimeIsRejected() throws IOException {
+        assertNull(parse("<maintag><data misc=\"refresh_time\">2020-10-16</data></maintag>"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.zem.pwswatcher.parser;
+
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Observation;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimestampNormalizerTest {
+    private static Observation observation(Format format, String date, String time) {
+        Observation observation = new Observation(format);
+        observation.setDate(date);
+        observation.setTime(time);
+        return observation;
+    }
+
+    private static long millis(Format format, String date, String time) {
+        return TimestampNormalizer.toEpochMillis(observation(format, date, time));
+    }
+
+    private static long local(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    private static int century() {
+        return Calendar.getInstance().get(Calendar.YEAR) / 100 * 100;
+    }
+
+    @Test
+    public void realtimeTxtIsDayMonthShortYear() {
+        assertEquals(local(century() + 20, 10, 16, 14, 35, 2), millis(Format.REALTIME_TXT, "16/10/20", "14:35:02"));
+        assertEquals(local(century() + 20, 10, 16, 14, 35, 2), millis(Format.REALTIME_TXT, "16-10-20", "14:35:02"));
+    }
+
+    @Test
+    public void clientRawIsDayMonthLongYear() {
+        assertEquals(local(2020, 10, 16, 14, 52, 7), millis(Format.CLIENTRAW_TXT, "16/10/2020", "14:52:07"));
+        assertEquals(local(2020, 10, 16, 14, 52, 7), millis(Format.CLIENTRAW_TXT, "16.10.2020", "14:52:07"));
+    }
+
+    @Test
+    public void realtimeXmlIsYearFirst() {
+        assertEquals(local(2020, 10, 16, 14, 35, 2), millis(Format.REALTIME_XML, "2020-10-16", "14:35:02"));
+        assertEquals(local(century() + 20, 10, 16, 14, 35, 2), millis(Format.REALTIME_XML, "20-10-16", "14:35:02"));
+    }
+
+    @Test
+    public void dailyCsvIsMonthFirstWithMeridiem() {
+        assertEquals(local(century() + 20, 10, 16, 0, 0, 0), millis(Format.DAILY_CSV, "10/16/20", "12:00 AM"));
+        assertEquals(local(century() + 20, 10, 16, 2, 55, 0), millis(Format.DAILY_CSV, "10/16/20", "2:55 AM"));
+        assertEquals(local(century() + 20, 10, 16, 12, 5, 0), millis(Format.DAILY_CSV, "10/16/20", "12:05 pm"));
+        assertEquals(local(century() + 20, 10, 16, 23, 59, 0), millis(Format.DAILY_CSV, "10/16/20", "11:59 PM"));
+    }
+
+    @Test
+    public void dailyCsvNeedsMeridiem() {
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.DAILY_CSV, "10/16/20", "14:55"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.DAILY_CSV, "10/16/20", "13:55 PM"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.DAILY_CSV, "10/16/20", "2:55:10 AM"));
+    }
+
+    @Test
+    public void secondsAreRequiredOutsideDailyCsv() {
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20", "14:35"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20", "2:35:00 PM"));
+    }
+
+    @Test
+    public void impossibleDatesAreUnknown() {
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "31/02/20", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/13/20", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20", "25:35:02"));
+    }
+
+    @Test
+    public void garbledTextIsUnknown() {
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20/1", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16_10_20", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20200", "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "", ""));
+    }
+
+    @Test
+    public void missingFieldsAreUnknown() {
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, null, "14:35:02"));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(Format.REALTIME_TXT, "16/10/20", null));
+        assertEquals(TimestampNormalizer.UNKNOWN, millis(null, "16/10/20", "14:35:02"));
+    }
+
+    @Test
+    public void rawTextIsCleanedForConvertibleFormats() {
+        assertEquals("16-10-2020 14:52:07",
+                TimestampNormalizer.rawText(observation(Format.CLIENTRAW_TXT, "16/10/2020", "14:52:07")));
+        assertEquals("16/10/20 14:35:02",
+                TimestampNormalizer.rawText(observation(Format.REALTIME_TXT, " 16/10/20", "14:35:02 ")));
+        assertEquals("14:35:02", TimestampNormalizer.rawText(observation(Format.REALTIME_TXT, null, "14:35:02")));
+    }
+}
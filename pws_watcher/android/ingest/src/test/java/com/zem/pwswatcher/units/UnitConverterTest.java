@@ -0,0 +1,119 @@
+package com.zem.pwswatcher.units;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnitConverterTest {
+    private static final Unit[] TEMPERATURES = {Unit.CELSIUS, Unit.FAHRENHEIT};
+    private static final Unit[] PRESSURES = {Unit.HECTOPASCAL, Unit.MILLIBAR, Unit.INCH_OF_MERCURY};
+    private static final Unit[] RAINS = {Unit.MILLIMETER, Unit.INCH};
+    private static final Unit[] WIND_SPEEDS = {Unit.KILOMETER_PER_HOUR, Unit.METER_PER_SECOND, Unit.MILE_PER_HOUR, Unit.KNOT};
+
+    private static void assertConverts(double expected, double value, Unit from, Unit to) {
+        double actual = UnitConverter.convert(value, from, to);
+        if (actual != expected)
+            assertEquals(value + " " + from + " -> " + to, expected, actual, 0.0);
+    }
+
+    // Outputs of the string based conversions the widgets used before UnitConverter
+    @Test
+    public void matchesLegacyOutputs() {
+        assertConverts(0.27, 0.99, Unit.KILOMETER_PER_HOUR, Unit.METER_PER_SECOND);
+        assertConverts(10.01, 10.005, Unit.KILOMETER_PER_HOUR, Unit.KILOMETER_PER_HOUR);
+        assertConverts(9.45, 5.1, Unit.KNOT, Unit.KILOMETER_PER_HOUR);
+        assertConverts(10.43, 12, Unit.MILE_PER_HOUR, Unit.KNOT);
+        assertConverts(1013.88, 29.94, Unit.INCH_OF_MERCURY, Unit.HECTOPASCAL);
+        assertConverts(1016.25, 1016.25, Unit.HECTOPASCAL, Unit.MILLIBAR);
+        assertConverts(30.01, 1016.2, Unit.HECTOPASCAL, Unit.INCH_OF_MERCURY);
+        assertConverts(0.09, 2.4, Unit.MILLIMETER, Unit.INCH);
+        assertConverts(3.05, 0.12, Unit.INCH, Unit.MILLIMETER);
+        assertConverts(14.78, 58.6, Unit.FAHRENHEIT, Unit.CELSIUS);
+        assertConverts(63.32, 17.4, Unit.CELSIUS, Unit.FAHRENHEIT);
+        assertConverts(-40.0, -40, Unit.FAHRENHEIT, Unit.CELSIUS);
+    }
+
+    @Test
+    public void sameUnitRoundsOnlyWindSpeedAndPressure() {
+        assertConverts(12.35, 12.345678, Unit.KILOMETER_PER_HOUR, Unit.KILOMETER_PER_HOUR);
+        assertConverts(1016.23, 1016.234, Unit.HECTOPASCAL, Unit.HECTOPASCAL);
+        assertConverts(1016.23, 1016.234, Unit.HECTOPASCAL, Unit.MILLIBAR);
+        assertConverts(0.123, 0.123, Unit.MILLIMETER, Unit.MILLIMETER);
+        assertConverts(17.456, 17.456, Unit.CELSIUS, Unit.CELSIUS);
+    }
+
+    // Every unit pair over 0.00-999.99 against the legacy operations, done in the legacy order
+    @Test
+    public void matchesLegacyOperationOrderOnGrid() {
+        for (int i = 0; i < 100000; i++) {
+            double value = i / 100d;
+            for (Unit from : TEMPERATURES)
+                for (Unit to : TEMPERATURES)
+                    assertConverts(legacyTemperature(value - 300, from, to), value - 300, from, to);
+            for (Unit from : PRESSURES)
+                for (Unit to : PRESSURES)
+                    assertConverts(legacyPressure(value, from, to), value, from, to);
+            for (Unit from : RAINS)
+                for (Unit to : RAINS)
+                    assertConverts(legacyRain(value, from, to), value, from, to);
+            for (Unit from : WIND_SPEEDS)
+                for (Unit to : WIND_SPEEDS)
+                    assertConverts(legacyWindSpeed(value, from, to), value, from, to);
+        }
+    }
+
+    @Test
+    public void resolvesStationUnitText() {
+        assertEquals(Unit.FAHRENHEIT, Unit.of("°F", Quantity.TEMPERATURE));
+        assertEquals(Unit.CELSIUS, Unit.of("C", Quantity.TEMPERATURE));
+        assertEquals(Unit.INCH_OF_MERCURY, Unit.of("inHg", Quantity.PRESSURE));
+        assertEquals(Unit.INCH_OF_MERCURY, Unit.of("in", Quantity.PRESSURE));
+        assertEquals(Unit.MILLIBAR, Unit.of("mb", Quantity.PRESSURE));
+        assertEquals(Unit.INCH, Unit.of("in", Quantity.RAIN));
+        assertEquals(Unit.METER_PER_SECOND, Unit.of(" m/s", Quantity.WIND_SPEED));
+        assertEquals(Unit.KNOT, Unit.of("kn", Quantity.WIND_SPEED));
+        assertEquals(Unit.KNOT, Unit.of("kts", Quantity.WIND_SPEED));
+        assertEquals(Unit.KILOMETER_PER_HOUR, Unit.of("bft", Quantity.WIND_SPEED));
+        assertEquals(Unit.HECTOPASCAL, Unit.of(null, Quantity.PRESSURE));
+    }
+
+    private static double round(double value) {
+        return (double) Math.round(value * 100d) / 100d;
+    }
+
+    private static double legacyTemperature(double value, Unit from, Unit to) {
+        if (from == to)
+            return value;
+        return from == Unit.FAHRENHEIT ? round((value - 32) * 5 / 9) : round((value * 9 / 5) + 32);
+    }
+
+    private static double legacyPressure(double value, Unit from, Unit to) {
+        double hPa = from == Unit.INCH_OF_MERCURY ? value * 33.86389 : value;
+        return round(to == Unit.INCH_OF_MERCURY ? hPa / 33.86389 : hPa);
+    }
+
+    private static double legacyRain(double value, Unit from, Unit to) {
+        if (from == to)
+            return value;
+        return from == Unit.MILLIMETER ? round(value / 25.4) : round(value * 25.4);
+    }
+
+    private static double legacyWindSpeed(double value, Unit from, Unit to) {
+        double kmh;
+        if (from == Unit.KNOT)
+            kmh = value * 1.852;
+        else if (from == Unit.MILE_PER_HOUR)
+            kmh = value * 1.60934;
+        else if (from == Unit.METER_PER_SECOND)
+            kmh = value * 3.6;
+        else
+            kmh = value;
+        if (to == Unit.KNOT)
+            return round(kmh / 1.852);
+        if (to == Unit.MILE_PER_HOUR)
+            return round(kmh / 1.60934);
+        if (to == Unit.METER_PER_SECOND)
+            return round(kmh / 3.6);
+        return round(kmh);
+    }
+}
@@ -0,0 +1,228 @@
+package com.zem.pwswatcher.loadtest;
+
+import com.zem.pwswatcher.ingest.Reading;
+import com.zem.pwswatcher.ingest.StationReader;
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.HttpClientProvider;
+import com.zem.pwswatcher.network.MemorySchemeStore;
+import com.zem.pwswatcher.network.PayloadCache;
+import com.zem.pwswatcher.network.SchemeStore;
+import com.zem.pwswatcher.parser.TimestampNormalizer;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Drives the ingest side of a device-sized fleet of widgets through many refresh ticks against
+// StationSimulator and reports what every tick costs: server requests by outcome, bytes, wall time,
+// new readings and heap. Each tick reads every widget's source with StationReader (fetch, format
+// detection and parsing, the code RefreshJob runs on its pool thread) on a pool of --parallelism
+// threads. Nothing Android is involved: the widget providers, RefreshScheduler, RefreshPipeline,
+// RefreshJob and RenderTracker are not run, and no AppWidgetManager call is made or counted; the
+// app's FleetRefreshTest covers those. A reading whose observation time moved forward is reported
+// as new, an upper bound on the widget updates the app would send. Between ticks the simulated clock jumps by --tick-minutes; a fresh
+// FetchCoordinator per tick keeps its share window from spanning ticks, while the payload cache
+// and scheme store live across ticks as they do in the app.
+//
+//   ./gradlew :loadtest:run --args='--widgets 24 --stations 8 --ticks 48 --error-rate 0.05'
+public final class FleetLoadTest {
+    // Only labels for the widget sources
+    private static final String[] WIDGET_KINDS = {"Widget", "WidgetMedium", "WidgetSmall"};
+    private static final long[] CADENCES_MS = {60000, 5 * 60000, 10 * 60000};
+    private static final long PAYLOAD_CACHE_BYTES = 2 * 1024 * 1024;
+
+    private int widgets = 24;
+    private int stations = 8;
+    private int ticks = 24;
+    private long tickMinutes = 15;
+    private int latencyMs = 80;
+    private int jitterMs = 60;
+    private double errorRate = 0.02;
+    private int parallelism = 4;
+    private long seed = 42;
+
+    private FleetLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        FleetLoadTest test = new FleetLoadTest();
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null)
+                    usage();
+                switch (args[i]) {
+                    case "--widgets":
+                        test.widgets = Integer.parseInt(value);
+                        break;
+                    case "--stations":
+                        test.stations = Integer.parseInt(value);
+                        break;
+                    case "--ticks":
+                        test.ticks = Integer.parseInt(value);
+                        break;
+                    case "--tick-minutes":
+                        test.tickMinutes = Long.parseLong(value);
+                        break;
+                    case "--latency-ms":
+                        test.latencyMs = Integer.parseInt(value);
+                        break;
+                    case "--jitter-ms":
+                        test.jitterMs = Integer.parseInt(value);
+                        break;
+                    case "--error-rate":
+                        test.errorRate = Double.parseDouble(value);
+                        break;
+                    case "--parallelism":
+                        test.parallelism = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        test.seed = Long.parseLong(value);
+                        break;
+                    default:
+                        usage();
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (test.widgets < 1 || test.stations < 1 || test.ticks < 1 || test.parallelism < 1)
+            usage();
+        test.run(System.out, System.err);
+        System.exit(0);
+    }
+
+    private static void usage() {
+        System.err.println("usage: fleet-load-test [--widgets N] [--stations N] [--ticks N] [--tick-minutes N]"
+                + " [--latency-ms N] [--jitter-ms N] [--error-rate P] [--parallelism N] [--seed N]");
+        System.exit(2);
+    }
+
+    private void run(PrintStream out, PrintStream err) throws Exception {
+        Random random = new Random(this.seed);
+        StationSimulator simulator = new StationSimulator(System.currentTimeMillis(), this.seed);
+        Format[] formats = Format.values();
+        List<SimulatedStation> fleet = new ArrayList<>();
+        for (int i = 0; i < this.stations; i++) {
+            long cadence = CADENCES_MS[(i / formats.length) % CADENCES_MS.length];
+            SimulatedStation station = new SimulatedStation(i + 1, formats[i % formats.length], cadence,
+                    (long) (random.nextDouble() * cadence), this.latencyMs + random.nextInt(this.jitterMs + 1), this.errorRate);
+            simulator.add(station);
+            fleet.add(station);
+        }
+        final Source[] sources = new Source[this.widgets];
+        for (int i = 0; i < this.widgets; i++) {
+            SimulatedStation station = fleet.get(i % fleet.size());
+            sources[i] = new Source(i + 1, WIDGET_KINDS[i % WIDGET_KINDS.length] + " #" + (i + 1), simulator.getUrl(station));
+        }
+        long[] lastObservedAt = new long[this.widgets];
+        Arrays.fill(lastObservedAt, TimestampNormalizer.UNKNOWN);
+
+        File cacheDirectory = Files.createTempDirectory("fleet-load-test").toFile();
+        PayloadCache cache = new PayloadCache(cacheDirectory, PAYLOAD_CACHE_BYTES);
+        SchemeStore schemeStore = new MemorySchemeStore();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long totalRequests = 0;
+        long totalBytes = 0;
+        long totalNewReadings = 0;
+        long totalWallNanos = 0;
+        long maxWallNanos = 0;
+        simulator.start();
+        try {
+            out.println("tick\twidgets\trequests\t200\t206\t304\terrors\tcoalesced\tkbytes\tnew_readings\tunchanged\tfailed\twall_ms\theap_mb");
+            for (int tick = 1; tick <= this.ticks; tick++) {
+                if (tick > 1)
+                    simulator.advance(this.tickMinutes * 60000);
+                long requests = simulator.requests.get();
+                long full = simulator.fullResponses.get();
+                long partial = simulator.partialResponses.get();
+                long notModified = simulator.notModified.get();
+                long errors = simulator.errors.get();
+                long bytes = simulator.bytesSent.get();
+
+                FetchCoordinator coordinator = new FetchCoordinator(HttpClientProvider.getClient(), schemeStore, cache);
+                final StationReader reader = new StationReader(coordinator);
+                long start = System.nanoTime();
+                List<Future<Reading>> pending = new ArrayList<>(this.widgets);
+                for (final Source source : sources)
+                    pending.add(executor.submit(() -> reader.read(source)));
+                int newReadings = 0;
+                int unchanged = 0;
+                int failed = 0;
+                for (int i = 0; i < pending.size(); i++) {
+                    Reading reading = pending.get(i).get();
+                    if (reading.getStatus() != Reading.Status.OK) {
+                        failed++;
+                        continue;
+                    }
+                    long observedAt = TimestampNormalizer.toEpochMillis(reading.getObservation());
+                    if (lastObservedAt[i] != TimestampNormalizer.UNKNOWN && observedAt <= lastObservedAt[i]) {
+                        unchanged++;
+                    } else {
+                        newReadings++;
+                        lastObservedAt[i] = observedAt;
+                    }
+                }
+                long wallNanos = System.nanoTime() - start;
+
+                long tickRequests = simulator.requests.get() - requests;
+                long tickBytes = simulator.bytesSent.get() - bytes;
+                totalRequests += tickRequests;
+                totalBytes += tickBytes;
+                totalNewReadings += newReadings;
+                totalWallNanos += wallNanos;
+                maxWallNanos = Math.max(maxWallNanos, wallNanos);
+                Runtime runtime = Runtime.getRuntime();
+                out.println(tick + "\t" + this.widgets + "\t" + tickRequests + "\t" + (simulator.fullResponses.get() - full)
+                        + "\t" + (simulator.partialResponses.get() - partial) + "\t" + (simulator.notModified.get() - notModified)
+                        + "\t" + (simulator.errors.get() - errors) + "\t" + coordinator.getCoalescedCount()
+                        + "\t" + tickBytes / 1024 + "\t" + newReadings + "\t" + unchanged + "\t" + failed
+                        + "\t" + wallNanos / 1000000 + "\t" + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+            }
+        } finally {
+            simulator.stop();
+            executor.shutdownNow();
+            deleteRecursively(cacheDirectory);
+        }
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools)
+            peakHeap += pool.getPeakUsage().getUsed();
+        err.println(this.widgets + " widgets on " + this.stations + " stations, " + this.ticks + " ticks of "
+                + this.tickMinutes + " simulated minutes, parallelism " + this.parallelism);
+        err.println("requests per tick: " + String.format("%.1f", (double) totalRequests / this.ticks)
+                + ", kbytes per tick: " + String.format("%.1f", totalBytes / 1024.0 / this.ticks)
+                + ", new readings per tick: " + String.format("%.1f", (double) totalNewReadings / this.ticks));
+        err.println("tick wall ms: mean " + totalWallNanos / this.ticks / 1000000 + ", max " + maxWallNanos / 1000000);
+        err.println("peak heap: " + peakHeap / (1024 * 1024) + " MB");
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children)
+                deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,200 @@
+package com.zem.pwswatcher.loadtest;
+
+import com.zem.pwswatcher.model.Format;
+
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Locale;
+
+// One weather station behind StationSimulator. It publishes a new reading every cadenceMs of
+// simulated time, shifted by phaseMs, in the file layout of its format; the reading values are
+// a smooth function of time so consecutive payloads differ like a real station's.
+public final class SimulatedStation {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String REALTIME_TXT_TAIL = " SW 3 km/h C hPa mm 84.1 -0.6 31.8 612.4 0.0 21.3 48 17.4 0.3 18.9"
+            + " 13:12 9.6 07:21 29.5 11:48 41.0 11:47 1017.4 00:03 1016.1 14:20 1.9.4 1099 23.4 17.4 18.7 2 0.36 412 231"
+            + " 0.0 2 1 0 239 1113 ft 17.1 3.4 498 1\n";
+    private static final int CLIENTRAW_FIELDS = 178;
+    private static final int CSV_COLUMNS = 60;
+
+    final int id;
+    final Format format;
+    final long cadenceMs;
+    final long phaseMs;
+    final int latencyMs;
+    final double errorRate;
+    private long renderedAt = Long.MIN_VALUE;
+    private byte[] rendered;
+
+    public SimulatedStation(int id, Format format, long cadenceMs, long phaseMs, int latencyMs, double errorRate) {
+        this.id = id;
+        this.format = format;
+        this.cadenceMs = cadenceMs;
+        this.phaseMs = phaseMs;
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+    }
+
+    String getPath() {
+        switch (this.format) {
+            case CLIENTRAW_TXT:
+                return "/" + this.id + "/clientraw.txt";
+            case REALTIME_XML:
+                return "/" + this.id + "/realtime.xml";
+            case DAILY_CSV:
+                return "/" + this.id + "/daily.csv";
+            default:
+                return "/" + this.id + "/realtime.txt";
+        }
+    }
+
+    long getPublishedAt(long now) {
+        long sincePhase = (now - this.phaseMs) % this.cadenceMs;
+        return now - (sincePhase < 0 ? sincePhase + this.cadenceMs : sincePhase);
+    }
+
+    synchronized byte[] getBody(long publishedAt) {
+        if (publishedAt != this.renderedAt) {
+            this.rendered = render(publishedAt).getBytes(UTF_8);
+            this.renderedAt = publishedAt;
+        }
+        return this.rendered;
+    }
+
+    private String render(long at) {
+        Calendar time = Calendar.getInstance();
+        time.setTimeInMillis(at);
+        switch (this.format) {
+            case CLIENTRAW_TXT:
+                return renderClientRaw(time);
+            case REALTIME_XML:
+                return renderRealtimeXml(time);
+            case DAILY_CSV:
+                return renderDailyCsv(time);
+            default:
+                return renderRealtimeTxt(time);
+        }
+    }
+
+    private String renderRealtimeTxt(Calendar time) {
+        long at = time.getTimeInMillis();
+        return String.format(Locale.US, "%02d/%02d/%02d %02d:%02d:%02d %.1f %d 10.3 %.1f 14.8 236 0.0 %.1f %.1f",
+                time.get(Calendar.DAY_OF_MONTH), time.get(Calendar.MONTH) + 1, time.get(Calendar.YEAR) % 100,
+                time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE), time.get(Calendar.SECOND),
+                temperature(at), humidity(at), windSpeed(at), rain(at), pressure(at)) + REALTIME_TXT_TAIL;
+    }
+
+    private String renderClientRaw(Calendar time) {
+        long at = time.getTimeInMillis();
+        String[] fields = new String[CLIENTRAW_FIELDS];
+        for (int i = 0; i < fields.length; i++)
+            fields[i] = "0.0";
+        fields[0] = "12345";
+        fields[1] = format1(windSpeed(at) / 1.852);
+        fields[2] = format1(windSpeed(at) / 1.852);
+        fields[3] = "241";
+        fields[4] = format1(temperature(at));
+        fields[5] = Integer.toString(humidity(at));
+        fields[6] = format1(pressure(at));
+        fields[7] = format1(rain(at));
+        fields[29] = Integer.toString(time.get(Calendar.HOUR_OF_DAY));
+        fields[30] = String.format(Locale.US, "%02d", time.get(Calendar.MINUTE));
+        fields[31] = String.format(Locale.US, "%02d", time.get(Calendar.SECOND));
+        fields[32] = "Station-" + this.id;
+        fields[48] = "2";
+        fields[74] = time.get(Calendar.DAY_OF_MONTH) + "/" + (time.get(Calendar.MONTH) + 1) + "/" + time.get(Calendar.YEAR);
+        fields[fields.length - 1] = "!!C10.37S!!";
+        StringBuilder out = new StringBuilder(1024);
+        for (int i = 0; i < fields.length; i++)
+            out.append(i > 0 ? " " : "").append(fields[i]);
+        return out.append('\n').toString();
+    }
+
+    private String renderRealtimeXml(Calendar time) {
+        long at = time.getTimeInMillis();
+        String refreshTime = String.format(Locale.US, "%04d-%02d-%02d, %02d:%02d:%02d", time.get(Calendar.YEAR),
+                time.get(Calendar.MONTH) + 1, time.get(Calendar.DAY_OF_MONTH), time.get(Calendar.HOUR_OF_DAY),
+                time.get(Calendar.MINUTE), time.get(Calendar.SECOND));
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<maintag>\n"
+                + data("misc", "location", "Station " + this.id)
+                + data("misc", "refresh_time", refreshTime)
+                + data("units", "tempunit", "&#176;C")
+                + data("units", "windunit", "km/h")
+                + data("units", "barunit", "hPa")
+                + data("units", "rainunit", "mm")
+                + data("realtime", "temp", format1(temperature(at)))
+                + data("realtime", "hum", Integer.toString(humidity(at)))
+                + data("realtime", "press", format1(pressure(at)))
+                + data("realtime", "todaysrain", format1(rain(at)))
+                + data("realtime", "windspeed", format1(windSpeed(at)))
+                + "</maintag>\n";
+    }
+
+    // One record per cadence since midnight, so the file grows through the day like the real one
+    private String renderDailyCsv(Calendar time) {
+        StringBuilder out = new StringBuilder(64 * 1024);
+        out.append(time.get(Calendar.MONTH) + 1).append('/').append(time.get(Calendar.DAY_OF_MONTH)).append('/')
+                .append(String.format(Locale.US, "%02d", time.get(Calendar.YEAR) % 100)).append("\r\n");
+        out.append("Time,Dir,WindSpeed,Gust,Rain,Humidity,DewPoint,Temperature,Pressure");
+        for (int i = 9; i < CSV_COLUMNS; i++)
+            out.append(',').append(i == 52 ? "DailyRain" : "C" + i);
+        out.append("\r\n,deg,km/h,km/h,mm,%,C,C,hPa");
+        for (int i = 9; i < CSV_COLUMNS; i++)
+            out.append(',').append(i == 52 ? "mm" : "-");
+        out.append("\r\n");
+        Calendar record = (Calendar) time.clone();
+        record.set(Calendar.HOUR_OF_DAY, 0);
+        record.set(Calendar.MINUTE, 0);
+        record.set(Calendar.SECOND, 0);
+        record.set(Calendar.MILLISECOND, 0);
+        long at = getPublishedAt(record.getTimeInMillis());
+        if (at < record.getTimeInMillis())
+            at += this.cadenceMs;
+        for (; at <= time.getTimeInMillis(); at += this.cadenceMs) {
+            record.setTimeInMillis(at);
+            int hour = record.get(Calendar.HOUR_OF_DAY);
+            out.append(hour % 12 == 0 ? 12 : hour % 12).append(':')
+                    .append(String.format(Locale.US, "%02d", record.get(Calendar.MINUTE)))
+                    .append(hour < 12 ? " AM" : " PM")
+                    .append(",236,").append(format1(windSpeed(at))).append(',').append(format1(windSpeed(at) * 1.6))
+                    .append(",0.0,").append(humidity(at)).append(",10.3,").append(format1(temperature(at)))
+                    .append(',').append(format1(pressure(at)));
+            for (int i = 9; i < CSV_COLUMNS; i++)
+                out.append(',').append(i == 52 ? format1(rain(at)) : "0.0");
+            out.append("\r\n");
+        }
+        return out.toString();
+    }
+
+    private static String data(String attribute, String name, String value) {
+        return "\t<data " + attribute + "=\"" + name + "\">" + value + "</data>\n";
+    }
+
+    private static String format1(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+
+    private double dayFraction(long at) {
+        return (at % 86400000L) / 86400000.0;
+    }
+
+    private double temperature(long at) {
+        return 12 + this.id % 7 + 6 * Math.sin(2 * Math.PI * (dayFraction(at) - 0.3));
+    }
+
+    private int humidity(long at) {
+        return (int) (70 - 20 * Math.sin(2 * Math.PI * (dayFraction(at) - 0.3)));
+    }
+
+    private double pressure(long at) {
+        return 1013 + 4 * Math.sin(at / 3600000.0 / 7);
+    }
+
+    private double rain(long at) {
+        return Math.floor(dayFraction(at) * 24) * 0.2 * (this.id % 3);
+    }
+
+    private double windSpeed(long at) {
+        return 8 + 5 * Math.abs(Math.sin(at / 600000.0 + this.id));
+    }
+}
@@ -0,0 +1,165 @@
+package com.zem.pwswatcher.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local HTTP server standing in for a fleet of stations, on a simulated clock the load tests move
+// forward tick by tick: FleetLoadTest here and FleetRefreshTest in the app. Every station answers
+// with its own latency and error rate, and like the servers the app meets in the wild it honours
+// ETag / Last-Modified validators and byte ranges.
+public final class StationSimulator {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, SimulatedStation> stations = new HashMap<>();
+    private final Random random;
+    private final AtomicLong now;
+
+    public final AtomicLong requests = new AtomicLong();
+    public final AtomicLong fullResponses = new AtomicLong();
+    public final AtomicLong partialResponses = new AtomicLong();
+    public final AtomicLong notModified = new AtomicLong();
+    public final AtomicLong errors = new AtomicLong();
+    public final AtomicLong bytesSent = new AtomicLong();
+
+    public StationSimulator(long startTime, long seed) throws IOException {
+        this.now = new AtomicLong(startTime);
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void add(SimulatedStation station) {
+        this.stations.put(station.getPath(), station);
+    }
+
+    public String getUrl(SimulatedStation station) {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + station.getPath();
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    public long getTime() {
+        return this.now.get();
+    }
+
+    public void advance(long millis) {
+        this.now.addAndGet(millis);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            this.requests.incrementAndGet();
+            SimulatedStation station = this.stations.get(exchange.getRequestURI().getPath());
+            if (station == null) {
+                send(exchange, 404, null, 0, 0);
+                return;
+            }
+            boolean failed;
+            synchronized (this.random) {
+                failed = this.random.nextDouble() < station.errorRate;
+            }
+            sleep(station.latencyMs);
+            if (failed) {
+                this.errors.incrementAndGet();
+                send(exchange, 503, null, 0, 0);
+                return;
+            }
+            long publishedAt = station.getPublishedAt(this.now.get());
+            String etag = "\"" + station.id + "-" + publishedAt + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", httpDate(publishedAt));
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                this.notModified.incrementAndGet();
+                send(exchange, 304, null, 0, 0);
+                return;
+            }
+            byte[] body = station.getBody(publishedAt);
+            long[] range = parseRange(exchange.getRequestHeaders().getFirst("Range"), body.length);
+            if (range == null) {
+                this.fullResponses.incrementAndGet();
+                send(exchange, 200, body, 0, body.length);
+            } else {
+                this.partialResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + body.length);
+                send(exchange, 206, body, (int) range[0], (int) (range[1] - range[0] + 1));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int code, byte[] body, int offset, int length) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(code, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body, offset, length);
+        }
+        this.bytesSent.addAndGet(length);
+    }
+
+    // bytes=<first>-<last>, bytes=<first>- or bytes=-<suffix>; null for a full response
+    private static long[] parseRange(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0 || size == 0)
+            return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? size - 1 : Math.min(size - 1, Long.parseLong(spec.substring(dash + 1)));
+            }
+            return first <= last && first < size ? new long[]{first, last} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String httpDate(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(time));
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0)
+            return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.zem.pwswatcher.validator;
+
+import com.zem.pwswatcher.ingest.Reading;
+import com.zem.pwswatcher.ingest.StationReader;
+import com.zem.pwswatcher.model.Format;
+import com.zem.pwswatcher.model.Source;
+import com.zem.pwswatcher.network.FetchCoordinator;
+import com.zem.pwswatcher.network.HttpClientProvider;
+import com.zem.pwswatcher.network.MemorySchemeStore;
+import com.zem.pwswatcher.network.PayloadCache;
+
+import org.json.JSONException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Vets a station list in bulk: every source is fetched and parsed through the same ingest code as
+// the widgets, at most --parallelism at a time. One tab separated line per station goes to stdout
+// in input order, the summary to stderr; the exit code is 1 when any station is not OK.
+//
+// The list holds one station per line, either a URL (bare host or station file) or a source as
+// the app stores it ({"id":1,"name":"...","url":"..."}). Empty lines and # comments are skipped.
+public final class StationValidator {
+    private static final int DEFAULT_PARALLELISM = 32;
+    private static final long CACHE_BYTES = 64 * 1024 * 1024;
+
+    private StationValidator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int parallelism = DEFAULT_PARALLELISM;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallelism") && i + 1 < args.length)
+                parallelism = Integer.parseInt(args[++i]);
+            else if (path == null && !args[i].startsWith("--"))
+                path = args[i];
+            else
+                usage();
+        }
+        if (path == null || parallelism < 1)
+            usage();
+
+        List<Source> sources = readSources(new File(path));
+        File cacheDirectory = Files.createTempDirectory("station-validator").toFile();
+        FetchCoordinator coordinator = new FetchCoordinator(HttpClientProvider.getClient(), new MemorySchemeStore(),
+                new PayloadCache(cacheDirectory, CACHE_BYTES));
+        final StationReader reader = new StationReader(coordinator);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        long start = System.nanoTime();
+        List<Reading> readings = new ArrayList<>(sources.size());
+        try {
+            List<Future<Reading>> pending = new ArrayList<>(sources.size());
+            for (final Source source : sources)
+                pending.add(executor.submit(() -> reader.read(source)));
+            PrintStream out = System.out;
+            out.println("id\tname\turl\tstatus\tformat\tendpoint\tfetch_ms\tparse_ms\tchars\tdetail");
+            for (Future<Reading> future : pending) {
+                Reading reading = future.get();
+                readings.add(reading);
+                print(out, reading);
+            }
+        } finally {
+            executor.shutdownNow();
+            deleteRecursively(cacheDirectory);
+        }
+        long wallNanos = System.nanoTime() - start;
+        boolean allOk = summarize(System.err, readings, wallNanos, parallelism, coordinator);
+        System.exit(allOk ? 0 : 1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: station-validator [--parallelism N] <stations-file>");
+        System.exit(2);
+    }
+
+    static List<Source> readSources(File file) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                if (line.startsWith("{")) {
+                    try {
+                        sources.add(Source.fromJSON(line));
+                    } catch (JSONException e) {
+                        throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                    }
+                } else {
+                    sources.add(new Source(lineNumber, line, line));
+                }
+            }
+        }
+        return sources;
+    }
+
+    private static void print(PrintStream out, Reading reading) {
+        Source source = reading.getSource();
+        out.println(source.getId() + "\t" + clean(source.getName()) + "\t" + clean(source.getUrl()) + "\t"
+                + reading.getStatus() + "\t" + (reading.getFormat() != null ? reading.getFormat() : "-") + "\t"
+                + (reading.getEndpoint() != null ? reading.getEndpoint() : "-") + "\t"
+                + millis(reading.getFetchNanos()) + "\t" + millis(reading.getParseNanos()) + "\t"
+                + reading.getLength() + "\t" + (reading.getDetail() != null ? clean(reading.getDetail()) : ""));
+    }
+
+    private static boolean summarize(PrintStream err, List<Reading> readings, long wallNanos, int parallelism,
+                                     FetchCoordinator coordinator) {
+        Map<Reading.Status, Integer> statuses = new EnumMap<>(Reading.Status.class);
+        Map<Format, Integer> formats = new EnumMap<>(Format.class);
+        long[] fetches = new long[readings.size()];
+        long[] parses = new long[readings.size()];
+        int parsed = 0;
+        for (int i = 0; i < readings.size(); i++) {
+            Reading reading = readings.get(i);
+            increment(statuses, reading.getStatus());
+            // Only readings with a payload were parsed
+            boolean fetched = reading.getStatus() != Reading.Status.UNREACHABLE
+                    && reading.getStatus() != Reading.Status.INVALID;
+            if (reading.getFormat() != null && fetched)
+                increment(formats, reading.getFormat());
+            fetches[i] = reading.getFetchNanos();
+            if (fetched)
+                parses[parsed++] = reading.getParseNanos();
+        }
+        Arrays.sort(fetches);
+        parses = Arrays.copyOf(parses, parsed);
+        Arrays.sort(parses);
+
+        err.println(readings.size() + " stations in " + millis(wallNanos) + " ms with parallelism " + parallelism);
+        err.println("status: " + statuses);
+        err.println("format: " + formats);
+        err.println("fetch ms: p50 " + millis(percentile(fetches, 50)) + ", p95 " + millis(percentile(fetches, 95))
+                + ", max " + millis(percentile(fetches, 100)));
+        err.println("parse ms: p50 " + millis(percentile(parses, 50)) + ", p95 " + millis(percentile(parses, 95))
+                + ", max " + millis(percentile(parses, 100)));
+        err.println("requests: " + coordinator.getNetworkFetchCount() + " network, " + coordinator.getCoalescedCount()
+                + " coalesced, " + coordinator.getSchemeFallbackCount() + " https fallbacks");
+        Integer ok = statuses.get(Reading.Status.OK);
+        return ok != null && ok == readings.size();
+    }
+
+    private static <K> void increment(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        counts.put(key, count != null ? count + 1 : 1);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    private static String clean(String text) {
+        return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children)
+                deleteRecursively(child);
+        }
+        file.delete();
+    }
+}